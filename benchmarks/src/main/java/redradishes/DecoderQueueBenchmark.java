@@ -0,0 +1,53 @@
+package redradishes;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The IO thread adds a batch of written commands to the decoder queue and then polls them as replies are parsed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(DecoderQueueBenchmark.BATCH)
+public class DecoderQueueBenchmark {
+  static final int BATCH = 100;
+  private static final Object COMMAND = new Object();
+  private final LinkedBlockingQueue<Object> linkedQueue = new LinkedBlockingQueue<>();
+  private final SpscChunkedQueue<Object> spscQueue = new SpscChunkedQueue<>();
+
+  @Benchmark
+  public void linkedBlockingQueue(Blackhole blackhole) {
+    for (int i = 0; i < BATCH; i++) {
+      linkedQueue.add(COMMAND);
+    }
+    for (int i = 0; i < BATCH; i++) {
+      blackhole.consume(linkedQueue.poll());
+    }
+  }
+
+  @Benchmark
+  public void spscChunkedQueue(Blackhole blackhole) {
+    for (int i = 0; i < BATCH; i++) {
+      spscQueue.add(COMMAND);
+    }
+    for (int i = 0; i < BATCH; i++) {
+      blackhole.consume(spscQueue.poll());
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package redradishes;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many sender threads adding commands to the writer queue of one connection drained by its IO thread. Run with
+ * {@code -tg 63,1} to reproduce 64 threads pipelining on a single client.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriterQueueBenchmark {
+  private static final int MAX_QUEUED = 64 * 1024;
+  private static final Object COMMAND = new Object();
+
+  @Param({"LinkedBlockingQueue", "MpscChunkedQueue"})
+  public String queueType;
+  private Queue queue;
+
+  @Setup
+  public void setUp() {
+    queue = "MpscChunkedQueue".equals(queueType) ? new MpscQueue() : new LinkedQueue();
+  }
+
+  @Benchmark
+  @Group("send")
+  @GroupThreads(7)
+  public boolean add() {
+    if (queue.size() < MAX_QUEUED) {
+      queue.add(COMMAND);
+      return true;
+    }
+    return false;
+  }
+
+  @Benchmark
+  @Group("send")
+  @GroupThreads(1)
+  public Object poll() {
+    return queue.poll();
+  }
+
+  interface Queue {
+    void add(Object e);
+
+    Object poll();
+
+    int size();
+  }
+
+  static class LinkedQueue implements Queue {
+    private final LinkedBlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+
+    @Override
+    public void add(Object e) {
+      queue.add(e);
+    }
+
+    @Override
+    public Object poll() {
+      return queue.poll();
+    }
+
+    @Override
+    public int size() {
+      return queue.size();
+    }
+  }
+
+  static class MpscQueue implements Queue {
+    private final MpscChunkedQueue<Object> queue = new MpscChunkedQueue<>();
+
+    @Override
+    public void add(Object e) {
+      queue.add(e);
+    }
+
+    @Override
+    public Object poll() {
+      return queue.poll();
+    }
+
+    @Override
+    public int size() {
+      return queue.size();
+    }
+  }
+}
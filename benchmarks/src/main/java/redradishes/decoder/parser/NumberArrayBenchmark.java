@@ -0,0 +1,77 @@
+package redradishes.decoder.parser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static redradishes.decoder.ArrayBuilders.array;
+import static redradishes.decoder.ArrayBuilders.collection;
+import static redradishes.decoder.BulkStringBuilders._long;
+import static redradishes.decoder.PrimitiveArrayBuilders.longArray;
+import static redradishes.decoder.PrimitiveArrayBuilders.longSet;
+import static redradishes.decoder.Replies.arrayReply;
+
+/**
+ * Decodes an array reply of database ids, as returned by {@code SMEMBERS}, into boxed and primitive arrays and sets.
+ * Run with {@code -prof gc} to compare {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NumberArrayBenchmark {
+  private static final int SIZE = 10_000;
+  @Param({"boxedArray", "longArray", "boxedSet", "longSet"})
+  public String builder;
+  private final FrameDecoder frameDecoder = new FrameDecoder(UTF_8.newDecoder());
+  private ReplyParser<?> parser;
+  private ByteBuffer buffer;
+
+  @Setup
+  public void encode() {
+    switch (builder) {
+      case "boxedArray":
+        parser = arrayReply(array(Long[]::new), _long());
+        break;
+      case "longArray":
+        parser = arrayReply(longArray());
+        break;
+      case "boxedSet":
+        parser = arrayReply(collection(HashSet::new), _long());
+        break;
+      default:
+        parser = arrayReply(longSet());
+    }
+    Random random = new Random(1);
+    StringBuilder sb = new StringBuilder("*").append(SIZE).append("\r\n");
+    for (int i = 0; i < SIZE; i++) {
+      String id = Integer.toString(random.nextInt(100_000_000));
+      sb.append('$').append(id.length()).append("\r\n").append(id).append("\r\n");
+    }
+    buffer = ByteBuffer.wrap(sb.toString().getBytes(US_ASCII));
+  }
+
+  @Benchmark
+  public Object decode() {
+    frameDecoder.parse(buffer, parser);
+    buffer.clear();
+    return frameDecoder.value();
+  }
+}
@@ -0,0 +1,97 @@
+package redradishes.decoder.parser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Finds the line ends and converts the numbers of a batch of CRLF-terminated lines, as in an array reply of numbers,
+ * byte by byte and with {@link Ascii}. Numbers are small counters, database ids, millisecond timestamps or 64-bit
+ * snowflake ids.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(NumberParsingBenchmark.BATCH)
+public class NumberParsingBenchmark {
+  static final int BATCH = 1000;
+  @Param({"counters", "ids", "timestamps", "snowflakes"})
+  public String numbers;
+  private ByteBuffer buffer;
+
+  @Setup
+  public void encode() {
+    Random random = new Random(1);
+    StringBuilder lines = new StringBuilder();
+    for (int i = 0; i < BATCH; i++) {
+      long num;
+      switch (numbers) {
+        case "counters":
+          num = random.nextInt(1000);
+          break;
+        case "ids":
+          num = random.nextInt(100_000_000);
+          break;
+        case "timestamps":
+          num = 1_500_000_000_000L + (random.nextLong() >>> 24);
+          break;
+        default:
+          num = random.nextLong() >>> 1;
+      }
+      lines.append(num).append("\r\n");
+    }
+    buffer = ByteBuffer.allocateDirect(lines.length());
+    buffer.put(lines.toString().getBytes(US_ASCII)).flip();
+  }
+
+  @Benchmark
+  public long byteLoop() {
+    long sum = 0;
+    int position = 0;
+    int limit = buffer.limit();
+    while (position < limit) {
+      int cr = position;
+      while (buffer.get(cr) != '\r') {
+        cr++;
+      }
+      long num = 0;
+      for (int i = position; i < cr; i++) {
+        num = num * 10 + (buffer.get(i) - '0');
+      }
+      sum += num;
+      position = cr + 2;
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long swar() {
+    long sum = 0;
+    int position = 0;
+    int limit = buffer.limit();
+    while (position < limit) {
+      int cr = Ascii.indexOfCr(buffer, position, limit);
+      sum += Ascii.parseLong(buffer, position, cr);
+      position = cr + 2;
+    }
+    return sum;
+  }
+}
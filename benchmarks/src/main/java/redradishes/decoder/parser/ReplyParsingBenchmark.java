@@ -0,0 +1,120 @@
+package redradishes.decoder.parser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static redradishes.decoder.ArrayBuilders.array;
+import static redradishes.decoder.BulkStringBuilders.byteArray;
+import static redradishes.decoder.Replies.arrayReply;
+import static redradishes.decoder.Replies.bulkStringReply;
+import static redradishes.decoder.Replies.longReply;
+import static redradishes.decoder.Replies.simpleStringReply;
+
+/**
+ * Parses a batch of replies with continuation parsers and with {@link FrameDecoder}, reading them in chunks of the
+ * given size. Run with {@code -prof gc}: {@code gc.alloc.rate.norm} is the number of bytes allocated per reply.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(ReplyParsingBenchmark.BATCH)
+public class ReplyParsingBenchmark {
+  static final int BATCH = 100;
+  @Param({"integer", "status", "bulk", "array"})
+  public String reply;
+  @Param({"16", "4096"})
+  public int chunkSize;
+  private final CharsetDecoder charsetDecoder = UTF_8.newDecoder();
+  private final FrameDecoder frameDecoder = new FrameDecoder(charsetDecoder);
+  private ReplyParser<?> parser;
+  private ByteBuffer buffer;
+
+  @Setup
+  public void encode() {
+    String encoded;
+    switch (reply) {
+      case "integer":
+        encoded = ":1234567\r\n";
+        parser = longReply();
+        break;
+      case "status":
+        encoded = "+OK\r\n";
+        parser = simpleStringReply();
+        break;
+      case "bulk":
+        encoded = "$16\r\nvalue-0123456789\r\n";
+        parser = bulkStringReply(byteArray());
+        break;
+      default:
+        StringBuilder sb = new StringBuilder("*10\r\n");
+        for (int i = 0; i < 10; i++) {
+          sb.append("$7\r\nvalue-").append(i).append("\r\n");
+        }
+        encoded = sb.toString();
+        parser = arrayReply(array(byte[][]::new), byteArray());
+    }
+    StringBuilder batch = new StringBuilder();
+    for (int i = 0; i < BATCH; i++) {
+      batch.append(encoded);
+    }
+    buffer = ByteBuffer.wrap(batch.toString().getBytes(US_ASCII));
+  }
+
+  @Benchmark
+  public void continuations(Blackhole blackhole) {
+    ReplyParser<?> current = parser;
+    for (int position = 0; position < buffer.capacity(); position = buffer.position()) {
+      buffer.limit(Math.min(position + chunkSize, buffer.capacity()));
+      while (buffer.hasRemaining()) {
+        ReplyParser<?> partial = parseReply(current, buffer, blackhole, charsetDecoder);
+        current = partial != null ? partial : parser;
+      }
+    }
+    buffer.clear();
+  }
+
+  @Benchmark
+  public void frames(Blackhole blackhole) {
+    for (int position = 0; position < buffer.capacity(); position = buffer.position()) {
+      buffer.limit(Math.min(position + chunkSize, buffer.capacity()));
+      while (buffer.hasRemaining()) {
+        if (frameDecoder.parse(buffer, parser)) {
+          blackhole.consume(frameDecoder.value());
+          blackhole.consume(frameDecoder.failure());
+        }
+      }
+    }
+    buffer.clear();
+  }
+
+  private static <T> ReplyParser<?> parseReply(ReplyParser<T> parser, ByteBuffer buffer, Blackhole blackhole,
+      CharsetDecoder charsetDecoder) {
+    return parser.<ReplyParser<?>>parseReply(buffer, value -> {
+      blackhole.consume(value);
+      return null;
+    }, partial -> partial, e -> {
+      blackhole.consume(e);
+      return null;
+    }, charsetDecoder);
+  }
+}
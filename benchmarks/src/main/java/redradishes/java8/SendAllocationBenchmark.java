@@ -0,0 +1,89 @@
+package redradishes.java8;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import redradishes.ReplyCallback;
+import redradishes.commands.Command1;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static redradishes.commands.CommandBuilder.command;
+import static redradishes.decoder.Replies.longReply;
+import static redradishes.encoder.Encoders.strArg;
+
+/**
+ * Sends batches of {@code INCR} to a Redis server on localhost:6379 with a future per command and with a reused
+ * callback. Run with {@code -prof gc}: {@code gc.alloc.rate.norm} is the number of bytes allocated per command.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(SendAllocationBenchmark.BATCH)
+public class SendAllocationBenchmark {
+  static final int BATCH = 1000;
+  private static final Command1<CharSequence, Long> INCR =
+      command("INCR").withArg(strArg(UTF_8)).returning(longReply());
+  private static final String KEY = "SendAllocationBenchmark";
+  private final Semaphore replies = new Semaphore(0);
+  private final ReplyCallback<Long> callback = new ReplyCallback<Long>() {
+    @Override
+    public void completed(Long value) {
+      replies.release();
+    }
+
+    @Override
+    public void failed(Throwable exception) {
+      replies.release();
+    }
+  };
+  private RedisClientFactory factory;
+  private RedisClient client;
+
+  @Setup
+  public void connect() throws IOException {
+    factory = new RedisClientFactory(UTF_8, 1);
+    client = factory.connect(new InetSocketAddress("localhost", 6379));
+  }
+
+  @TearDown
+  public void close() {
+    client.close();
+    factory.close();
+  }
+
+  @Benchmark
+  public Long future() {
+    CompletableFuture<Long> last = null;
+    for (int i = 0; i < BATCH; i++) {
+      last = client.send(INCR, KEY);
+    }
+    // Replies on one connection complete in order
+    return last.join();
+  }
+
+  @Benchmark
+  public void callback() {
+    for (int i = 0; i < BATCH; i++) {
+      client.send(INCR, KEY, callback);
+    }
+    replies.acquireUninterruptibly(BATCH);
+  }
+}
@@ -0,0 +1,58 @@
+package redradishes;
+
+/**
+ * AIMD limit on the number of commands written to a connection but not replied to yet. The limit grows by one per
+ * round trip while replies arrive close to the lowest recently seen round-trip time, and shrinks multiplicatively,
+ * at most once per round trip, when round trips get longer because the server queues requests. Not thread safe; it is
+ * used by the IO thread of a connection only.
+ */
+class AdaptiveLimit {
+  static final int INITIAL_LIMIT = 32;
+  static final int MAX_LIMIT = 4096;
+  private static final int MIN_LIMIT = 1;
+  private static final double BACKOFF_RATIO = 0.9;
+  private static final long RTT_TOLERANCE = 2;
+  private static final long MIN_RTT_TOLERANCE_NANOS = 100_000;
+  private static final int MIN_RTT_WINDOW = 1000;
+  private double limit = INITIAL_LIMIT;
+  private long minRtt = Long.MAX_VALUE;
+  private long windowMinRtt = Long.MAX_VALUE;
+  private int windowSamples = 0;
+  private int repliesBeforeDecrease = 0;
+
+  int limit() {
+    return (int) limit;
+  }
+
+  void onReply(long writtenAt, long now, int inFlight) {
+    long rtt = now - writtenAt;
+    updateMinRtt(rtt);
+    if (repliesBeforeDecrease > 0) {
+      repliesBeforeDecrease--;
+    }
+    if (rtt > Math.max(minRtt * RTT_TOLERANCE, minRtt + MIN_RTT_TOLERANCE_NANOS)) {
+      if (repliesBeforeDecrease == 0) {
+        limit = Math.max(MIN_LIMIT, limit * BACKOFF_RATIO);
+        // Replies to the commands already in flight were delayed by the same queue
+        repliesBeforeDecrease = inFlight;
+      }
+    } else if (inFlight * 2 >= limit) {
+      limit = Math.min(MAX_LIMIT, limit + 1 / limit);
+    }
+  }
+
+  private void updateMinRtt(long rtt) {
+    if (rtt < minRtt) {
+      minRtt = rtt;
+    }
+    if (rtt < windowMinRtt) {
+      windowMinRtt = rtt;
+    }
+    // The lowest round trip of the previous window becomes the baseline, so it follows changes of network latency
+    if (++windowSamples == MIN_RTT_WINDOW) {
+      minRtt = windowMinRtt;
+      windowMinRtt = Long.MAX_VALUE;
+      windowSamples = 0;
+    }
+  }
+}
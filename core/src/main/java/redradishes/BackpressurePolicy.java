@@ -0,0 +1,22 @@
+package redradishes;
+
+/**
+ * What a client does with a command sent while the pending limits set by
+ * {@link RedisClientOptions#MAX_PENDING_COMMANDS} or {@link RedisClientOptions#MAX_PENDING_BYTES} are reached.
+ */
+public enum BackpressurePolicy {
+  /**
+   * Fails the returned future with {@link TooManyPendingCommandsException}.
+   */
+  FAIL,
+  /**
+   * Blocks the sending thread until enough pending commands complete. Commands sent from IO threads are failed
+   * instead, as blocking them would stop replies from being read.
+   */
+  BLOCK,
+  /**
+   * Returns at once and holds the command back in the client until enough pending commands complete. Deferred
+   * commands are sent in the order they were deferred.
+   */
+  DEFER
+}
@@ -0,0 +1,46 @@
+package redradishes;
+
+import org.xnio.XnioIoThread;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Collects tasks submitted from an IO thread until the thread finishes its current round of channel handlers and hands
+ * them over to the delegate executor as one task. Tasks submitted from other threads are passed on at once.
+ */
+class BatchingExecutor implements Executor {
+  private final Executor delegate;
+  private final ThreadLocal<Batch> batches = ThreadLocal.withInitial(Batch::new);
+
+  BatchingExecutor(Executor delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    XnioIoThread ioThread = XnioIoThread.currentThread();
+    if (ioThread == null) {
+      delegate.execute(task);
+      return;
+    }
+    Batch batch = batches.get();
+    if (batch.tasks.isEmpty()) {
+      // Tasks queued to the IO thread run after the handlers of the current round
+      ioThread.execute(batch);
+    }
+    batch.tasks.add(task);
+  }
+
+  private class Batch implements Runnable {
+    private List<Runnable> tasks = new ArrayList<>();
+
+    @Override
+    public void run() {
+      List<Runnable> batch = tasks;
+      tasks = new ArrayList<>();
+      delegate.execute(() -> batch.forEach(Runnable::run));
+    }
+  }
+}
@@ -1,17 +1,23 @@
 package redradishes;
 
 import org.xnio.ByteBufferPool;
+import redradishes.encoder.FileRegion;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayList;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 
 class ByteBufferBundle {
   private final ByteBufferPool pool;
-  private final Deque<ByteBuffer> allocated = new LinkedList<>();
+  /**
+   * Byte buffers and {@link FileTransfer}s in the order they are written.
+   */
+  private final Deque<Object> allocated = new LinkedList<>();
   private ByteBuffer currentWriteBuffer = null;
 
   ByteBufferBundle(ByteBufferPool pool) {
@@ -38,6 +44,39 @@ class ByteBufferBundle {
     return currentWriteBuffer;
   }
 
+  /**
+   * Returns {@code true} if heap buffers are worth sharing. A channel copies heap buffers to direct ones anyway, so
+   * sharing them only saves a copy when the pool holds heap buffers as well.
+   */
+  boolean sharesHeapBuffers() {
+    return !pool.isDirect();
+  }
+
+  /**
+   * Appends the remaining bytes of the buffer without copying them. The buffer is written as it is and is not returned
+   * to the pool.
+   */
+  void share(ByteBuffer buffer) {
+    finishWriteBuffer();
+    // Pooled buffers are writable, so a read-only view marks the shared one
+    allocated.add(buffer.asReadOnlyBuffer());
+  }
+
+  /**
+   * Appends a file region, which is transferred to the channel without being loaded into memory.
+   */
+  void transfer(FileRegion region) {
+    finishWriteBuffer();
+    allocated.add(new FileTransfer(region));
+  }
+
+  private void finishWriteBuffer() {
+    if (currentWriteBuffer != null) {
+      currentWriteBuffer.flip();
+      currentWriteBuffer = null;
+    }
+  }
+
   private ByteBuffer allocateBuffer() {
     ByteBuffer pooledBuffer = pool.allocate();
     allocated.add(pooledBuffer);
@@ -45,43 +84,77 @@ class ByteBufferBundle {
   }
 
   long writeTo(GatheringByteChannel channel) throws IOException {
-    startReading();
+    finishWriteBuffer();
     try {
-      return channel.write(getReadBuffers());
+      long written = 0;
+      while (true) {
+        ByteBuffer[] readBuffers = getReadBuffers();
+        if (readBuffers.length > 0) {
+          written += channel.write(readBuffers);
+          if (readBuffers[readBuffers.length - 1].hasRemaining()) {
+            return written;
+          }
+          freeWritten();
+        }
+        Object next = allocated.peekFirst();
+        if (!(next instanceof FileTransfer)) {
+          return written;
+        }
+        FileTransfer transfer = (FileTransfer) next;
+        written += transfer.transferTo(channel);
+        if (transfer.remaining() > 0) {
+          return written;
+        }
+        allocated.removeFirst();
+      }
     } finally {
       startWriting();
     }
   }
 
-  private void startReading() {
-    if (currentWriteBuffer != null) {
-      currentWriteBuffer.flip();
+  /**
+   * Returns the buffers in front of the first file transfer.
+   */
+  private ByteBuffer[] getReadBuffers() {
+    List<ByteBuffer> buffers = new ArrayList<>(allocated.size());
+    for (Object element : allocated) {
+      if (element instanceof FileTransfer) {
+        break;
+      }
+      buffers.add((ByteBuffer) element);
     }
-    currentWriteBuffer = null;
+    return buffers.toArray(new ByteBuffer[buffers.size()]);
   }
 
-  private ByteBuffer[] getReadBuffers() {
-    return allocated.toArray(new ByteBuffer[allocated.size()]);
+  private void startWriting() {
+    freeWritten();
+    Object last = allocated.peekLast();
+    if (last instanceof ByteBuffer) {
+      ByteBuffer lastBuffer = (ByteBuffer) last;
+      if (!lastBuffer.isReadOnly() && lastBuffer.limit() < lastBuffer.capacity()) {
+        currentWriteBuffer = lastBuffer.compact();
+      }
+    }
   }
 
-  private void startWriting() {
-    Iterator<ByteBuffer> iterator = allocated.iterator();
+  private void freeWritten() {
+    Iterator<Object> iterator = allocated.iterator();
     while (iterator.hasNext()) {
-      ByteBuffer byteBuffer = iterator.next();
+      Object element = iterator.next();
+      if (element instanceof FileTransfer) {
+        break;
+      }
+      ByteBuffer byteBuffer = (ByteBuffer) element;
       if (!byteBuffer.hasRemaining()) {
-        byteBuffer.clear();
-        ByteBufferPool.free(byteBuffer);
+        if (!byteBuffer.isReadOnly()) {
+          byteBuffer.clear();
+          ByteBufferPool.free(byteBuffer);
+        }
         iterator.remove();
       } else {
         break;
       }
     }
-    ByteBuffer lastBuffer = allocated.peekLast();
-    if (lastBuffer != null) {
-      if (lastBuffer.limit() < lastBuffer.capacity()) {
-        currentWriteBuffer = lastBuffer.compact();
-      }
-    }
   }
 
   boolean isEmpty() {
@@ -91,4 +164,17 @@ class ByteBufferBundle {
   int allocSize() {
     return allocated.size();
   }
+
+  long readableBytes() {
+    long bytes = 0;
+    for (Object element : allocated) {
+      if (element instanceof FileTransfer) {
+        bytes += ((FileTransfer) element).remaining();
+      } else {
+        ByteBuffer buffer = (ByteBuffer) element;
+        bytes += buffer == currentWriteBuffer ? buffer.position() : buffer.remaining();
+      }
+    }
+    return bytes;
+  }
 }
@@ -1,6 +1,7 @@
 package redradishes;
 
 import redradishes.encoder.ByteSink;
+import redradishes.encoder.FileRegion;
 
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
@@ -55,6 +56,10 @@ class ByteBufferSink implements ByteSink {
 
   @Override
   public void write(byte[] src, int offset, int length) {
+    if (length >= MIN_SHARED_LENGTH && byteBufferBundle.sharesHeapBuffers()) {
+      share(ByteBuffer.wrap(src, offset, length));
+      return;
+    }
     while (true) {
       int freeSpace = buffer.remaining();
       if (freeSpace >= length) {
@@ -68,4 +73,36 @@ class ByteBufferSink implements ByteSink {
       }
     }
   }
+
+  @Override
+  public void write(ByteBuffer src) {
+    if (src.remaining() >= MIN_SHARED_LENGTH && (src.isDirect() || byteBufferBundle.sharesHeapBuffers())) {
+      share(src);
+      return;
+    }
+    while (true) {
+      int freeSpace = buffer.remaining();
+      if (freeSpace >= src.remaining()) {
+        buffer.put(src);
+        break;
+      } else {
+        int limit = src.limit();
+        src.limit(src.position() + freeSpace);
+        buffer.put(src);
+        src.limit(limit);
+        buffer = byteBufferBundle.getNew();
+      }
+    }
+  }
+
+  @Override
+  public void write(FileRegion region) {
+    byteBufferBundle.transfer(region);
+    buffer = byteBufferBundle.get();
+  }
+
+  private void share(ByteBuffer src) {
+    byteBufferBundle.share(src);
+    buffer = byteBufferBundle.get();
+  }
 }
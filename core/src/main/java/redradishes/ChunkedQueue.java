@@ -0,0 +1,66 @@
+package redradishes;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Unbounded queue of linked array chunks with a single consumer. Producers publish an element by a lazy store into
+ * the slot reserved for it, so the consumer treats an empty slot as the end of the queue.
+ */
+abstract class ChunkedQueue<E> {
+  static final int CHUNK_SHIFT = 10;
+  static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+  static final int CHUNK_MASK = CHUNK_SIZE - 1;
+  final AtomicLong tail = new AtomicLong();
+  private final AtomicLong head = new AtomicLong();
+  private Chunk<E> headChunk;
+
+  ChunkedQueue(Chunk<E> firstChunk) {
+    this.headChunk = firstChunk;
+  }
+
+  abstract void add(E e);
+
+  /**
+   * Must only be called by the consumer.
+   */
+  E poll() {
+    long index = head.get();
+    Chunk<E> chunk = headChunk;
+    if (chunk.index != index >>> CHUNK_SHIFT) {
+      chunk = chunk.next;
+      if (chunk == null) {
+        return null;
+      }
+      headChunk = chunk;
+    }
+    int offset = (int) index & CHUNK_MASK;
+    E e = chunk.get(offset);
+    if (e != null) {
+      chunk.lazySet(offset, null);
+      head.lazySet(index + 1);
+    }
+    return e;
+  }
+
+  boolean isEmpty() {
+    return head.get() == tail.get();
+  }
+
+  /**
+   * Returns the number of elements added but not yet polled.
+   */
+  int size() {
+    return (int) Math.max(0, tail.get() - head.get());
+  }
+
+  static final class Chunk<E> extends AtomicReferenceArray<E> {
+    final long index;
+    volatile Chunk<E> next;
+
+    Chunk(long index) {
+      super(CHUNK_SIZE);
+      this.index = index;
+    }
+  }
+}
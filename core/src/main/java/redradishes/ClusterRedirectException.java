@@ -0,0 +1,63 @@
+package redradishes;
+
+public class ClusterRedirectException extends RedisException {
+  private final boolean ask;
+  private final int slot;
+  private final String host;
+  private final int port;
+
+  private ClusterRedirectException(String message, boolean ask, int slot, String host, int port) {
+    super(message);
+    this.ask = ask;
+    this.slot = slot;
+    this.host = host;
+    this.port = port;
+  }
+
+  /**
+   * Parses {@code MOVED <slot> <host>:<port>} and {@code ASK <slot> <host>:<port>} error messages.
+   *
+   * @return the redirect or {@code null} if the message is not a redirect
+   */
+  public static ClusterRedirectException parse(String message) {
+    boolean ask;
+    if (message.startsWith("MOVED ")) {
+      ask = false;
+    } else if (message.startsWith("ASK ")) {
+      ask = true;
+    } else {
+      return null;
+    }
+    String[] parts = message.split(" ");
+    if (parts.length != 3) {
+      return null;
+    }
+    int colon = parts[2].lastIndexOf(':');
+    if (colon < 0) {
+      return null;
+    }
+    try {
+      int slot = Integer.parseInt(parts[1]);
+      int port = Integer.parseInt(parts[2].substring(colon + 1));
+      return new ClusterRedirectException(message, ask, slot, parts[2].substring(0, colon), port);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  public boolean isAsk() {
+    return ask;
+  }
+
+  public int getSlot() {
+    return slot;
+  }
+
+  public String getHost() {
+    return host;
+  }
+
+  public int getPort() {
+    return port;
+  }
+}
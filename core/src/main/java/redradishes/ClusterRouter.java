@@ -0,0 +1,190 @@
+package redradishes;
+
+import org.xnio.ByteBufferPool;
+import org.xnio.OptionMap;
+import org.xnio.XnioWorker;
+import redradishes.commands.Command;
+import redradishes.encoder.KeyConsumer;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static redradishes.commands.CommandBuilder.command;
+import static redradishes.decoder.Replies.objectReply;
+
+class ClusterRouter extends ConnectionRouter {
+  private static final Command<Object> CLUSTER_SLOTS = command("CLUSTER").withOption("SLOTS").returning(objectReply());
+  private final XnioWorker worker;
+  private final ByteBufferPool bufferPool;
+  private final Charset charset;
+  private final OptionMap options;
+  private final String seedHost;
+  private final ReconnectingConnection seed;
+  private final ConcurrentMap<InetSocketAddress, ReconnectingConnection> nodes = new ConcurrentHashMap<>();
+  private final AtomicReferenceArray<ReconnectingConnection> slots =
+      new AtomicReferenceArray<>(HashSlots.SLOT_COUNT);
+  private final AtomicBoolean refreshing = new AtomicBoolean();
+  private volatile boolean closed = false;
+
+  ClusterRouter(XnioWorker worker, SocketAddress seedAddress, ByteBufferPool bufferPool, Charset charset,
+      OptionMap options) {
+    this.worker = worker;
+    this.bufferPool = bufferPool;
+    this.charset = charset;
+    this.options = options;
+    this.seed = new ReconnectingConnection(worker.getIoThread(), seedAddress, bufferPool, charset, options);
+    if (seedAddress instanceof InetSocketAddress) {
+      this.seedHost = ((InetSocketAddress) seedAddress).getHostString();
+      nodes.put((InetSocketAddress) seedAddress, seed);
+    } else {
+      this.seedHost = "localhost";
+    }
+    refreshSlots();
+  }
+
+  @Override
+  ReconnectingConnection route(Request<?> request) {
+    FirstKeySlot firstKey = new FirstKeySlot();
+    request.keys(firstKey);
+    return route(firstKey.slot >= 0 ? slots.get(firstKey.slot) : null);
+  }
+
+  @Override
+  ReconnectingConnection route(Request<?> request, Object affinityKey) {
+    return route(slots.get(slot(affinityKey)));
+  }
+
+  /**
+   * A node whose connection has failed may have been replaced by a replica, so the slot map is reloaded and the
+   * request goes to any other node, which redirects it if needed.
+   */
+  private ReconnectingConnection route(ReconnectingConnection node) {
+    if (node == null) {
+      return anyNode();
+    }
+    if (node.failure() != null) {
+      refreshSlots();
+      return anyNode();
+    }
+    return node;
+  }
+
+  private static int slot(Object key) {
+    if (key instanceof byte[]) {
+      return HashSlots.slot((byte[]) key);
+    } else if (key instanceof CharSequence) {
+      return HashSlots.slot((CharSequence) key);
+    } else {
+      return Math.floorMod(key.hashCode(), HashSlots.SLOT_COUNT);
+    }
+  }
+
+  private ReconnectingConnection anyNode() {
+    if (seed.failure() == null) {
+      return seed;
+    }
+    for (ReconnectingConnection node : nodes.values()) {
+      if (node.failure() == null) {
+        return node;
+      }
+    }
+    return seed;
+  }
+
+  @Override
+  boolean redirect(QueuedCommand<?> command, ClusterRedirectException redirect) {
+    if (closed) {
+      return false;
+    }
+    ReconnectingConnection node = node(redirect.getHost(), redirect.getPort());
+    if (!redirect.isAsk()) {
+      slots.set(redirect.getSlot(), node);
+      refreshSlots();
+    }
+    node.send(command);
+    return true;
+  }
+
+  /**
+   * Returns the connection to the node, opening a new one if there is none yet or the last one has failed.
+   */
+  private ReconnectingConnection node(String host, int port) {
+    InetSocketAddress address = new InetSocketAddress(host == null || host.isEmpty() ? seedHost : host, port);
+    return nodes.compute(address, (a, node) -> node == null || node.failure() != null ?
+        new ReconnectingConnection(worker.getIoThread(), a, bufferPool, charset, options) : node);
+  }
+
+  private void refreshSlots() {
+    if (refreshing.compareAndSet(false, true)) {
+      anyNode().send(new QueuedCommand<Object>(this, CLUSTER_SLOTS) {
+        @Override
+        void completed(Object value) {
+          // A redirect seen while the slots are updated asks for another refresh
+          refreshing.set(false);
+          updateSlots((List<?>) value);
+        }
+
+        @Override
+        void failed(Throwable e) {
+          refreshing.set(false);
+        }
+
+        @Override
+        void cancelled() {
+          refreshing.set(false);
+        }
+      });
+    }
+  }
+
+  private void updateSlots(List<?> ranges) {
+    for (Object entry : ranges) {
+      List<?> range = (List<?>) entry;
+      int first = ((Long) range.get(0)).intValue();
+      int last = ((Long) range.get(1)).intValue();
+      List<?> master = (List<?>) range.get(2);
+      ReconnectingConnection node = node((String) master.get(0), ((Long) master.get(1)).intValue());
+      for (int slot = first; slot <= last; slot++) {
+        if (slots.get(slot) != node) {
+          slots.set(slot, node);
+        }
+      }
+    }
+  }
+
+  @Override
+  Collection<ReconnectingConnection> connections() {
+    if (nodes.containsValue(seed)) {
+      return nodes.values();
+    }
+    List<ReconnectingConnection> connections = new ArrayList<>(nodes.values());
+    connections.add(seed);
+    return connections;
+  }
+
+  private static class FirstKeySlot implements KeyConsumer {
+    int slot = -1;
+
+    @Override
+    public void key(byte[] src, int offset, int length) {
+      if (slot < 0) {
+        slot = HashSlots.slot(src, offset, length);
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    seed.close();
+    nodes.values().forEach(ReconnectingConnection::close);
+  }
+}
@@ -2,6 +2,7 @@ package redradishes;
 
 import redradishes.decoder.parser.ReplyParser;
 import redradishes.encoder.ByteSink;
+import redradishes.encoder.KeyConsumer;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.CharsetDecoder;
@@ -24,6 +25,22 @@ public class CommandList<T> implements Request<List<T>> {
     }
   }
 
+  @Override
+  public long length() {
+    long length = 0;
+    for (Request<T> request : requests) {
+      length += request.length();
+    }
+    return length;
+  }
+
+  @Override
+  public void keys(KeyConsumer keyConsumer) {
+    for (Request<T> request : requests) {
+      request.keys(keyConsumer);
+    }
+  }
+
   @Override
   public ReplyParser<List<T>> parser() {
     return new ReplyParser<List<T>>() {
@@ -0,0 +1,23 @@
+package redradishes;
+
+/**
+ * Where futures are completed, and so where callbacks attached to them without an executor run. Set with
+ * {@link RedisClientOptions#COMPLETION}.
+ */
+public enum CompletionStrategy {
+  /**
+   * Completes futures on the IO thread as soon as their replies are parsed. A slow callback delays reading replies of
+   * all commands on the connection.
+   */
+  INLINE,
+  /**
+   * Submits each completion to {@link RedisClientOptions#COMPLETION_EXECUTOR} as a separate task. Futures may then
+   * complete in a different order than their replies arrived.
+   */
+  EXECUTOR,
+  /**
+   * Collects the completions made by an IO thread while it handles one round of ready channels and submits them to
+   * {@link RedisClientOptions#COMPLETION_EXECUTOR} as a single task.
+   */
+  BATCHED
+}
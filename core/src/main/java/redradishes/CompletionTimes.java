@@ -0,0 +1,24 @@
+package redradishes;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time spent completing futures and callbacks inline, which includes running callbacks attached to the futures.
+ */
+class CompletionTimes {
+  final LongAdder completions = new LongAdder();
+  final LongAdder nanos = new LongAdder();
+  final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+  /**
+   * Reply callbacks which threw an exception.
+   */
+  final LongAdder failedCallbacks = new LongAdder();
+
+  void record(long startNanos) {
+    long elapsed = System.nanoTime() - startNanos;
+    completions.increment();
+    nanos.add(elapsed);
+    maxNanos.accumulate(elapsed);
+  }
+}
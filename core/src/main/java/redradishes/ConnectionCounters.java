@@ -0,0 +1,30 @@
+package redradishes;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a connection which outlive reconnects.
+ */
+class ConnectionCounters {
+  /**
+   * Commands which are queued or written but whose replies have not been parsed yet.
+   */
+  final AtomicInteger outstanding = new AtomicInteger();
+  /**
+   * Commands dropped by the writer because they were cancelled or expired before they were written.
+   */
+  final LongAdder shed = new LongAdder();
+  /**
+   * Gathering writes to the socket.
+   */
+  final LongAdder writes = new LongAdder();
+  /**
+   * Commands passed to the socket by those writes.
+   */
+  final LongAdder writtenCommands = new LongAdder();
+  /**
+   * Writes done by the sending thread instead of the IO thread.
+   */
+  final LongAdder inlineWrites = new LongAdder();
+}
@@ -0,0 +1,66 @@
+package redradishes;
+
+import org.xnio.ByteBufferPool;
+import org.xnio.OptionMap;
+import org.xnio.XnioWorker;
+
+import java.net.SocketAddress;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+
+class ConnectionPool extends ConnectionRouter {
+  private final ReconnectingConnection[] connections;
+
+  ConnectionPool(XnioWorker worker, SocketAddress address, ByteBufferPool bufferPool, Charset charset,
+      OptionMap options) {
+    int connectionCount = options.get(RedisClientOptions.CONNECTIONS, 1);
+    if (connectionCount < 1) {
+      throw new IllegalArgumentException("Number of connections must be positive: " + connectionCount);
+    }
+    this.connections = new ReconnectingConnection[connectionCount];
+    int firstThread = worker.getIoThread().getNumber();
+    for (int i = 0; i < connectionCount; i++) {
+      connections[i] =
+          new ReconnectingConnection(worker.getIoThread(firstThread + i), address, bufferPool, charset, options);
+    }
+  }
+
+  @Override
+  ReconnectingConnection route(Request<?> request) {
+    int length = connections.length;
+    if (length == 1) {
+      return connections[0];
+    }
+    int start = ThreadLocalRandom.current().nextInt(length);
+    ReconnectingConnection best = null;
+    int bestOutstanding = Integer.MAX_VALUE;
+    for (int i = 0; i < length; i++) {
+      ReconnectingConnection connection = connections[(start + i) % length];
+      int outstanding = connection.outstanding();
+      if (outstanding < bestOutstanding && connection.failure() == null) {
+        best = connection;
+        bestOutstanding = outstanding;
+      }
+    }
+    return best != null ? best : connections[start];
+  }
+
+  @Override
+  ReconnectingConnection route(Request<?> request, Object affinityKey) {
+    return connections[Math.floorMod(affinityKey.hashCode(), connections.length)];
+  }
+
+  @Override
+  Collection<ReconnectingConnection> connections() {
+    return Arrays.asList(connections);
+  }
+
+  @Override
+  public void close() {
+    for (ReconnectingConnection connection : connections) {
+      connection.close();
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package redradishes;
+
+import java.util.Collection;
+
+abstract class ConnectionRouter implements AutoCloseable {
+  abstract ReconnectingConnection route(Request<?> request);
+
+  abstract ReconnectingConnection route(Request<?> request, Object affinityKey);
+
+  abstract Collection<ReconnectingConnection> connections();
+
+  /**
+   * Sends a command again following a cluster redirect.
+   *
+   * @return {@code false} if the redirect cannot be followed
+   */
+  boolean redirect(QueuedCommand<?> command, ClusterRedirectException redirect) {
+    return false;
+  }
+
+  @Override
+  public abstract void close();
+}
@@ -0,0 +1,202 @@
+package redradishes;
+
+import redradishes.decoder.parser.ReplyParser;
+import redradishes.encoder.ByteSink;
+import redradishes.encoder.FileRegion;
+import redradishes.encoder.KeyConsumer;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A request already encoded on the sending thread, so the IO thread only copies its bytes. File regions and values of
+ * at least {@link ByteSink#MIN_SHARED_LENGTH} bytes are kept by reference and written as they are.
+ */
+final class EncodedRequest<T> implements Request<T> {
+  private static final ThreadLocal<Slab> SLABS = ThreadLocal.withInitial(Slab::new);
+  private final Request<T> request;
+  @Nullable
+  private final List<Consumer<ByteSink>> parts;
+  private final byte[] bytes;
+  private final int offset;
+  private final int count;
+  private final long length;
+
+  /**
+   * @param parts the parts written before the bytes, or {@code null} if the request is encoded in the bytes only
+   */
+  private EncodedRequest(Request<T> request, @Nullable List<Consumer<ByteSink>> parts, byte[] bytes, int offset,
+      int count, long length) {
+    this.request = request;
+    this.parts = parts;
+    this.bytes = bytes;
+    this.offset = offset;
+    this.count = count;
+    this.length = length;
+  }
+
+  static <T> Request<T> encode(Request<T> request) {
+    return SLABS.get().encode(request);
+  }
+
+  @Override
+  public void writeTo(ByteSink sink) {
+    if (parts != null) {
+      for (Consumer<ByteSink> part : parts) {
+        part.accept(sink);
+      }
+    }
+    sink.write(bytes, offset, count);
+  }
+
+  @Override
+  public ReplyParser<? extends T> parser() {
+    return request.parser();
+  }
+
+  @Override
+  public long length() {
+    return length;
+  }
+
+  @Override
+  public void keys(KeyConsumer keyConsumer) {
+    request.keys(keyConsumer);
+  }
+
+  /**
+   * Per-thread buffer which encoded requests are cut from. A filled slab is left to the garbage collector once the
+   * requests referring to it are done.
+   */
+  private static final class Slab implements ByteSink {
+    private static final int SIZE = 64 * 1024;
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+    private byte[] bytes = new byte[SIZE];
+    private int start = 0;
+    private int position = 0;
+    @Nullable
+    private List<Consumer<ByteSink>> parts;
+    private long partsLength;
+
+    <T> Request<T> encode(Request<T> request) {
+      partsLength = 0;
+      try {
+        request.writeTo(this);
+      } catch (RuntimeException e) {
+        position = start;
+        parts = null;
+        throw e;
+      }
+      int count = position - start;
+      EncodedRequest<T> encoded = new EncodedRequest<>(request, parts, bytes, start, count, partsLength + count);
+      // The slab must not keep shared values alive
+      parts = null;
+      if (bytes.length > SIZE) {
+        // Grown for a large request, which should not keep the oversized array alive
+        bytes = new byte[SIZE];
+        position = 0;
+      }
+      start = position;
+      return encoded;
+    }
+
+    private void ensureFree(int length) {
+      if (bytes.length - position < length) {
+        int used = position - start;
+        if (length > MAX_ARRAY_SIZE - used) {
+          throw new IllegalArgumentException("Request too large to encode: " + ((long) used + length) + " bytes");
+        }
+        int required = used + length;
+        byte[] newBytes = new byte[Math.max(SIZE, required + Math.min(required, MAX_ARRAY_SIZE - required))];
+        System.arraycopy(bytes, start, newBytes, 0, used);
+        bytes = newBytes;
+        start = 0;
+        position = used;
+      }
+    }
+
+    @Override
+    public void write(byte b) {
+      ensureFree(1);
+      bytes[position++] = b;
+    }
+
+    @Override
+    public void write(CharSequence s, CharsetEncoder charsetEncoder) {
+      ensureFree((int) Math.ceil(s.length() * (double) charsetEncoder.maxBytesPerChar()));
+      ByteBuffer out = ByteBuffer.wrap(bytes, position, bytes.length - position);
+      charsetEncoder.reset();
+      CoderResult coderResult = charsetEncoder.encode(CharBuffer.wrap(s), out, true);
+      if (coderResult.isUnderflow()) {
+        coderResult = charsetEncoder.flush(out);
+      }
+      if (!coderResult.isUnderflow()) {
+        try {
+          coderResult.throwException();
+        } catch (CharacterCodingException e) {
+          throw new UncheckedCharacterCodingException(e);
+        }
+      }
+      position = out.position();
+    }
+
+    @Override
+    public void write(byte[] src) {
+      write(src, 0, src.length);
+    }
+
+    @Override
+    public void write(byte[] src, int offset, int length) {
+      if (length >= MIN_SHARED_LENGTH) {
+        share(sink -> sink.write(src, offset, length), length);
+        return;
+      }
+      ensureFree(length);
+      System.arraycopy(src, offset, bytes, position, length);
+      position += length;
+    }
+
+    @Override
+    public void write(ByteBuffer src) {
+      if (src.remaining() >= MIN_SHARED_LENGTH) {
+        ByteBuffer shared = src.slice();
+        src.position(src.limit());
+        // Each write gets its own view, since sinks may consume the buffer
+        share(sink -> sink.write(shared.duplicate()), shared.remaining());
+      } else {
+        ByteSink.super.write(src);
+      }
+    }
+
+    @Override
+    public void write(FileRegion region) {
+      share(sink -> sink.write(region), region.count());
+    }
+
+    /**
+     * Cuts the bytes encoded so far and adds the part after them.
+     */
+    private void share(Consumer<ByteSink> part, int length) {
+      if (parts == null) {
+        parts = new ArrayList<>();
+      }
+      int count = position - start;
+      if (count > 0) {
+        byte[] slab = bytes;
+        int offset = start;
+        parts.add(sink -> sink.write(slab, offset, count));
+        partsLength += count;
+        start = position;
+      }
+      parts.add(part);
+      partsLength += length;
+    }
+  }
+}
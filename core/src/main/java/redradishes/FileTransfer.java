@@ -0,0 +1,69 @@
+package redradishes;
+
+import org.xnio.channels.StreamSinkChannel;
+import redradishes.encoder.FileRegion;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+
+/**
+ * Sends a file region to a channel over several writes. An XNIO channel transfers it without copying; other channels
+ * get it in memory-mapped chunks.
+ */
+class FileTransfer {
+  private final FileRegion region;
+  private FileChannel fileChannel;
+  private ByteBuffer mappedChunk;
+  private long position;
+  private long remaining;
+
+  FileTransfer(FileRegion region) {
+    this.region = region;
+    this.position = region.position();
+    this.remaining = region.count();
+  }
+
+  long remaining() {
+    return remaining;
+  }
+
+  long transferTo(GatheringByteChannel channel) throws IOException {
+    if (fileChannel == null) {
+      fileChannel = region.open();
+    }
+    long transferred;
+    try {
+      if (channel instanceof StreamSinkChannel) {
+        transferred = ((StreamSinkChannel) channel).transferFrom(fileChannel, position, remaining);
+      } else {
+        if (mappedChunk == null || !mappedChunk.hasRemaining()) {
+          mappedChunk = fileChannel.map(FileChannel.MapMode.READ_ONLY, position,
+              Math.min(remaining, FileRegion.MAPPED_CHUNK_SIZE));
+        }
+        transferred = channel.write(mappedChunk);
+      }
+    } catch (IOException | RuntimeException e) {
+      try {
+        release();
+      } catch (IOException suppressed) {
+        e.addSuppressed(suppressed);
+      }
+      throw e;
+    }
+    position += transferred;
+    remaining -= transferred;
+    if (remaining == 0) {
+      release();
+    }
+    return transferred;
+  }
+
+  private void release() throws IOException {
+    mappedChunk = null;
+    FileChannel channel = fileChannel;
+    fileChannel = null;
+    region.release(channel);
+  }
+}
@@ -0,0 +1,58 @@
+package redradishes;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public final class HashSlots {
+  public static final int SLOT_COUNT = 16384;
+  private static final int[] CRC16_TABLE = new int[256];
+
+  static {
+    for (int i = 0; i < 256; i++) {
+      int crc = i << 8;
+      for (int j = 0; j < 8; j++) {
+        crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+      }
+      CRC16_TABLE[i] = crc & 0xffff;
+    }
+  }
+
+  private HashSlots() {
+  }
+
+  public static int slot(CharSequence key) {
+    return slot(key.toString().getBytes(UTF_8));
+  }
+
+  public static int slot(byte[] key) {
+    return slot(key, 0, key.length);
+  }
+
+  /**
+   * Returns the cluster hash slot of a key taking hash tags into account.
+   */
+  public static int slot(byte[] key, int offset, int length) {
+    int end = offset + length;
+    for (int i = offset; i < end; i++) {
+      if (key[i] == '{') {
+        for (int j = i + 1; j < end; j++) {
+          if (key[j] == '}') {
+            if (j > i + 1) {
+              return crc16(key, i + 1, j - i - 1) & (SLOT_COUNT - 1);
+            }
+            break;
+          }
+        }
+        break;
+      }
+    }
+    return crc16(key, offset, length) & (SLOT_COUNT - 1);
+  }
+
+  static int crc16(byte[] bytes, int offset, int length) {
+    int crc = 0;
+    for (int i = offset; i < offset + length; i++) {
+      crc = ((crc << 8) ^ CRC16_TABLE[((crc >>> 8) ^ bytes[i]) & 0xff]) & 0xffff;
+    }
+    return crc;
+  }
+}
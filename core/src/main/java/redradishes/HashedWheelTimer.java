@@ -0,0 +1,172 @@
+package redradishes;
+
+import org.xnio.XnioIoThread;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Hashed timing wheel for command timeouts. Timeouts are nodes of intrusive lists, so scheduling and cancelling
+ * allocate nothing and cost O(1). The wheel is only touched by the IO thread it ticks on; other threads hand timeouts
+ * over through lock-free queues. The timer ticks only while timeouts are pending.
+ */
+public class HashedWheelTimer {
+  private static final long TICK_MILLIS = 10;
+  private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS);
+  private static final int WHEEL_SIZE = 512;
+  private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+  private final XnioIoThread thread;
+  private final Timeout[] wheel = new Timeout[WHEEL_SIZE];
+  private final MpscChunkedQueue<Timeout> added = new MpscChunkedQueue<>();
+  private final MpscChunkedQueue<Timeout> cancelled = new MpscChunkedQueue<>();
+  private final AtomicBoolean ticking = new AtomicBoolean();
+  private final long startTime = System.nanoTime();
+  private final Runnable tick = this::tick;
+  private long lastTick;
+  private int scheduled = 0;
+
+  public HashedWheelTimer(XnioIoThread thread) {
+    this.thread = thread;
+  }
+
+  void schedule(Timeout timeout, long delayNanos) {
+    timeout.timer = this;
+    timeout.deadline = System.nanoTime() + delayNanos;
+    added.add(timeout);
+    if (!ticking.get() && ticking.compareAndSet(false, true)) {
+      thread.executeAfter(tick, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void cancel(Timeout timeout) {
+    cancelled.add(timeout);
+  }
+
+  private void tick() {
+    long currentTick = (System.nanoTime() - startTime) / TICK_NANOS;
+    if (scheduled == 0) {
+      lastTick = currentTick - 1;
+    }
+    Timeout timeout;
+    while ((timeout = added.poll()) != null) {
+      if (timeout.state == Timeout.PENDING) {
+        link(timeout);
+      }
+    }
+    while ((timeout = cancelled.poll()) != null) {
+      if (timeout.bucket >= 0) {
+        unlink(timeout);
+      }
+    }
+    for (long t = lastTick + 1; t <= currentTick && scheduled > 0; t++) {
+      expire((int) t & WHEEL_MASK);
+    }
+    lastTick = currentTick;
+    if (scheduled > 0 || !added.isEmpty()) {
+      thread.executeAfter(tick, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    } else {
+      ticking.set(false);
+      if (!added.isEmpty() && ticking.compareAndSet(false, true)) {
+        thread.executeAfter(tick, TICK_MILLIS, TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+
+  private void link(Timeout timeout) {
+    long deadlineTick = Math.max(lastTick + 1, (timeout.deadline - startTime + TICK_NANOS - 1) / TICK_NANOS);
+    timeout.rounds = (deadlineTick - lastTick - 1) / WHEEL_SIZE;
+    int bucket = (int) deadlineTick & WHEEL_MASK;
+    timeout.bucket = bucket;
+    timeout.prev = null;
+    timeout.next = wheel[bucket];
+    if (timeout.next != null) {
+      timeout.next.prev = timeout;
+    }
+    wheel[bucket] = timeout;
+    scheduled++;
+  }
+
+  private void unlink(Timeout timeout) {
+    if (timeout.prev != null) {
+      timeout.prev.next = timeout.next;
+    } else {
+      wheel[timeout.bucket] = timeout.next;
+    }
+    if (timeout.next != null) {
+      timeout.next.prev = timeout.prev;
+    }
+    timeout.next = null;
+    timeout.prev = null;
+    timeout.bucket = -1;
+    scheduled--;
+  }
+
+  private void expire(int bucket) {
+    Timeout timeout = wheel[bucket];
+    while (timeout != null) {
+      Timeout next = timeout.next;
+      if (timeout.rounds <= 0) {
+        unlink(timeout);
+        if (Timeout.STATE.compareAndSet(timeout, Timeout.PENDING, Timeout.EXPIRED)) {
+          timeout.expired();
+        }
+      } else {
+        timeout.rounds--;
+      }
+      timeout = next;
+    }
+  }
+
+  /**
+   * Something that can time out, typically a command. Exactly one of {@link #finish()} and {@link #expired()}
+   * succeeds.
+   */
+  abstract static class Timeout {
+    private static final int PENDING = 0;
+    private static final int FINISHED = 1;
+    private static final int EXPIRED = 2;
+    private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+        AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+    private volatile int state = PENDING;
+    private HashedWheelTimer timer;
+    private long deadline;
+    private long rounds;
+    private int bucket = -1;
+    private Timeout prev;
+    private Timeout next;
+
+    /**
+     * Returns {@code false} if the timeout has expired or {@code finish()} has already been called.
+     */
+    final boolean finish() {
+      if (!STATE.compareAndSet(this, PENDING, FINISHED)) {
+        return false;
+      }
+      if (timer != null) {
+        timer.cancel(this);
+      }
+      return true;
+    }
+
+    final boolean isFinished() {
+      return state != PENDING;
+    }
+
+    /**
+     * Expires the timeout at once if its deadline has passed, without waiting for the timer to tick.
+     */
+    final boolean expireIfDue(long now) {
+      if (timer != null && now - deadline >= 0 && STATE.compareAndSet(this, PENDING, EXPIRED)) {
+        expired();
+        return true;
+      }
+      return false;
+    }
+
+    /**
+     * Called on the timer thread when the deadline passes before {@link #finish()} is called.
+     */
+    abstract void expired();
+  }
+}
@@ -0,0 +1,53 @@
+package redradishes;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Lock-free multi-producer single-consumer queue. A producer reserves a slot with a single atomic increment and
+ * allocates nothing but a new chunk for every {@value ChunkedQueue#CHUNK_SIZE} elements.
+ */
+class MpscChunkedQueue<E> extends ChunkedQueue<E> {
+  @SuppressWarnings("rawtypes")
+  private static final AtomicReferenceFieldUpdater<Chunk, Chunk> NEXT =
+      AtomicReferenceFieldUpdater.newUpdater(Chunk.class, Chunk.class, "next");
+  private volatile Chunk<E> tailChunk;
+
+  MpscChunkedQueue() {
+    this(new Chunk<>(0));
+  }
+
+  private MpscChunkedQueue(Chunk<E> firstChunk) {
+    super(firstChunk);
+    this.tailChunk = firstChunk;
+  }
+
+  @Override
+  void add(E e) {
+    // Reading the chunk before reserving the slot guarantees that the slot is in this chunk or a later one
+    Chunk<E> chunk = tailChunk;
+    long index = tail.getAndIncrement();
+    long chunkIndex = index >>> CHUNK_SHIFT;
+    if (chunk.index != chunkIndex) {
+      chunk = findChunk(chunk, chunkIndex);
+      if (tailChunk.index < chunkIndex) {
+        tailChunk = chunk;
+      }
+    }
+    chunk.lazySet((int) index & CHUNK_MASK, e);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <E> Chunk<E> findChunk(Chunk<E> chunk, long chunkIndex) {
+    while (chunk.index < chunkIndex) {
+      Chunk<E> next = chunk.next;
+      if (next == null) {
+        next = new Chunk<>(chunk.index + 1);
+        if (!NEXT.compareAndSet(chunk, null, next)) {
+          next = chunk.next;
+        }
+      }
+      chunk = next;
+    }
+    return chunk;
+  }
+}
@@ -0,0 +1,194 @@
+package redradishes;
+
+import org.xnio.XnioIoThread;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounds the number and the encoded size of commands which are queued or waiting for a reply. A single command or
+ * batch larger than the limits is admitted when nothing else is pending.
+ */
+class PendingLimit {
+  private final int maxCommands;
+  private final long maxBytes;
+  private final BackpressurePolicy policy;
+  private final AtomicInteger commands = new AtomicInteger();
+  private final AtomicLong bytes = new AtomicLong();
+  private final LongAdder rejected = new LongAdder();
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition released = lock.newCondition();
+  private volatile int waiters = 0;
+  private final Queue<Deferred> deferred = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger deferredCount = new AtomicInteger();
+  private final AtomicInteger drainRequests = new AtomicInteger();
+
+  PendingLimit(int maxCommands, long maxBytes, BackpressurePolicy policy) {
+    if (maxCommands < 1) {
+      throw new IllegalArgumentException("Maximum number of pending commands must be positive: " + maxCommands);
+    }
+    if (maxBytes < 1) {
+      throw new IllegalArgumentException("Maximum number of pending bytes must be positive: " + maxBytes);
+    }
+    this.maxCommands = maxCommands;
+    this.maxBytes = maxBytes;
+    this.policy = policy;
+  }
+
+  /**
+   * Dispatches the command at once or, depending on the policy, after other commands are released.
+   *
+   * @throws TooManyPendingCommandsException if the command is rejected
+   * @throws InterruptedException if the thread is interrupted while blocked
+   */
+  void acquire(Deferred command) throws InterruptedException {
+    int count = command.commands();
+    long length = command.length();
+    switch (policy) {
+      case DEFER:
+        if (deferred.isEmpty() && tryAcquire(count, length, false)) {
+          command.dispatch();
+        } else {
+          deferredCount.incrementAndGet();
+          deferred.add(command);
+          drainDeferred();
+        }
+        return;
+      case BLOCK:
+        if (!tryAcquire(count, length, false)) {
+          if (Thread.currentThread() instanceof XnioIoThread) {
+            throw reject();
+          }
+          lock.lockInterruptibly();
+          try {
+            waiters++;
+            try {
+              while (!tryAcquire(count, length, false)) {
+                released.await();
+              }
+            } finally {
+              waiters--;
+            }
+          } finally {
+            lock.unlock();
+          }
+        }
+        command.dispatch();
+        return;
+      default:
+        if (!tryAcquire(count, length, false)) {
+          throw reject();
+        }
+        command.dispatch();
+    }
+  }
+
+  private TooManyPendingCommandsException reject() {
+    rejected.increment();
+    return new TooManyPendingCommandsException(
+        "Pending commands limit reached: " + commands.get() + " commands, " + bytes.get() + " bytes");
+  }
+
+  private boolean tryAcquire(int count, long length, boolean draining) {
+    int c;
+    do {
+      c = commands.get();
+      if (c != 0 && c > maxCommands - count) {
+        return false;
+      }
+    } while (!commands.compareAndSet(c, c + count));
+    long b = bytes.addAndGet(length);
+    if (b > maxBytes && b != length) {
+      bytes.addAndGet(-length);
+      commands.addAndGet(-count);
+      // Another sender may have failed because of this transient reservation
+      released(draining);
+      return false;
+    }
+    return true;
+  }
+
+  void release(long length) {
+    release(1, length);
+  }
+
+  void release(int count, long length) {
+    bytes.addAndGet(-length);
+    commands.addAndGet(-count);
+    released(false);
+  }
+
+  private void released(boolean draining) {
+    if (waiters > 0) {
+      lock.lock();
+      try {
+        released.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+    if (!draining && !deferred.isEmpty()) {
+      drainDeferred();
+    }
+  }
+
+  private void drainDeferred() {
+    if (drainRequests.getAndIncrement() != 0) {
+      return;
+    }
+    int missed = 1;
+    do {
+      Deferred command;
+      while ((command = deferred.peek()) != null && tryAcquire(command.commands(), command.length(), true)) {
+        deferred.poll();
+        deferredCount.decrementAndGet();
+        command.dispatch();
+      }
+      missed = drainRequests.addAndGet(-missed);
+    } while (missed != 0);
+  }
+
+  void close() {
+    Deferred command;
+    while ((command = deferred.poll()) != null) {
+      deferredCount.decrementAndGet();
+      command.cancel();
+    }
+  }
+
+  int commands() {
+    return commands.get();
+  }
+
+  long bytes() {
+    return bytes.get();
+  }
+
+  long rejected() {
+    return rejected.sum();
+  }
+
+  int deferred() {
+    return deferredCount.get();
+  }
+
+  interface Deferred {
+    /**
+     * Returns the number of commands counted against the limit, more than one for a batch.
+     */
+    default int commands() {
+      return 1;
+    }
+
+    long length();
+
+    void dispatch();
+
+    void cancel();
+  }
+}
@@ -0,0 +1,151 @@
+package redradishes;
+
+import redradishes.RedisClientConnection.CommandEncoderDecoder;
+import redradishes.commands.Command;
+import redradishes.decoder.parser.FrameDecoder;
+import redradishes.decoder.parser.ReplyParser;
+import redradishes.encoder.ByteSink;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static redradishes.commands.CommandBuilder.command;
+import static redradishes.decoder.Replies.discardingReply;
+import static redradishes.decoder.Replies.simpleStringReply;
+
+abstract class QueuedCommand<T> extends HashedWheelTimer.Timeout implements CommandEncoderDecoder {
+  private static final int MAX_REDIRECTS = 5;
+  private static final Command<CharSequence> ASKING = command("ASKING").returning(simpleStringReply());
+  private final ConnectionRouter router;
+  private final Request<? extends T> request;
+  private Request<? extends T> currentRequest;
+  private ReplyParser<? extends T> parser;
+  private boolean discarding = false;
+  private boolean replyStarted = false;
+  private int redirects = 0;
+
+  QueuedCommand(ConnectionRouter router, Request<? extends T> request) {
+    this.router = router;
+    this.request = request;
+    this.currentRequest = request;
+    this.parser = request.parser();
+  }
+
+  Request<? extends T> request() {
+    return request;
+  }
+
+  @Override
+  public void writeTo(ByteSink sink) {
+    currentRequest.writeTo(sink);
+  }
+
+  @Override
+  public boolean isAbandoned(long now) {
+    return isAbandoned() || expireIfDue(now);
+  }
+
+  private boolean isAbandoned() {
+    if (isFinished()) {
+      return true;
+    }
+    if (isCancelledByCaller()) {
+      cancelled();
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public boolean parse(ByteBuffer buffer, FrameDecoder frameDecoder) throws IOException {
+    if (!replyStarted) {
+      replyStarted = true;
+      // Nobody waits for the reply, so it is skipped without building values
+      discarding = isAbandoned();
+    } else if (!discarding && FrameDecoder.supports(parser) && isAbandoned()) {
+      // Abandoned while a long reply arrives: the rest of it is skipped. Continuation parsers cannot be switched.
+      frameDecoder.discardRest();
+      discarding = true;
+    }
+    if (discarding) {
+      if (!frameDecoder.parse(buffer, discardingReply())) {
+        return false;
+      }
+      replySkipped();
+      return true;
+    }
+    if (FrameDecoder.supports(parser)) {
+      if (!frameDecoder.parse(buffer, parser)) {
+        return false;
+      }
+      Throwable failure = frameDecoder.failure();
+      if (failure == null) {
+        completed((T) frameDecoder.value());
+      } else {
+        replyFailed(failure);
+      }
+      return true;
+    }
+    return parser.parseReply(buffer, value -> {
+      completed(value);
+      return true;
+    }, partial -> {
+      parser = partial;
+      return false;
+    }, exception -> {
+      replyFailed(exception);
+      return true;
+    }, frameDecoder.charsetDecoder());
+  }
+
+  private void replyFailed(Throwable exception) {
+    if (!(exception instanceof ClusterRedirectException) || !redirect((ClusterRedirectException) exception)) {
+      failed(exception);
+    }
+  }
+
+  private boolean redirect(ClusterRedirectException redirect) {
+    if (redirects >= MAX_REDIRECTS) {
+      return false;
+    }
+    redirects++;
+    currentRequest = redirect.isAsk() ? ASKING.combineIgnoringSecond(request) : request;
+    parser = currentRequest.parser();
+    replyStarted = false;
+    return router.redirect(this, redirect);
+  }
+
+  @Override
+  public void fail(Throwable e) {
+    failed(e);
+  }
+
+  @Override
+  public void cancel() {
+    cancelled();
+  }
+
+  @Override
+  void expired() {
+  }
+
+  /**
+   * Called once the reply of an abandoned command has been read and skipped, so the server is done with it.
+   */
+  void replySkipped() {
+  }
+
+  /**
+   * Returns {@code true} if the caller has cancelled the command, so its reply is no longer needed.
+   */
+  boolean isCancelledByCaller() {
+    return false;
+  }
+
+  abstract void completed(T value);
+
+  abstract void failed(Throwable e);
+
+  abstract void cancelled();
+}
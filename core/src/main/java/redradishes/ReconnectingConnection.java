@@ -0,0 +1,122 @@
+package redradishes;
+
+import org.xnio.ByteBufferPool;
+import org.xnio.IoFuture;
+import org.xnio.IoUtils;
+import org.xnio.OptionMap;
+import org.xnio.StreamConnection;
+import org.xnio.XnioIoThread;
+import redradishes.RedisClientConnection.CommandEncoderDecoder;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.charset.Charset;
+
+class ReconnectingConnection implements AutoCloseable {
+  private final MpscChunkedQueue<CommandEncoderDecoder> writerQueue = new MpscChunkedQueue<>();
+  private final ConnectionCounters counters = new ConnectionCounters();
+  private final XnioIoThread ioThread;
+  private final SocketAddress address;
+  private final ByteBufferPool bufferPool;
+  private final Charset charset;
+  private final OptionMap options;
+  private volatile IoFuture<StreamConnection> streamConnectionFuture;
+  private volatile RedisClientConnection redisClientConnection;
+  private volatile IOException failure;
+  private volatile boolean closed = false;
+
+  ReconnectingConnection(XnioIoThread ioThread, SocketAddress address, ByteBufferPool bufferPool, Charset charset,
+      OptionMap options) {
+    this.ioThread = ioThread;
+    this.address = address;
+    this.bufferPool = bufferPool;
+    this.charset = charset;
+    this.options = options;
+    this.streamConnectionFuture = openConnection();
+  }
+
+  private IoFuture<StreamConnection> openConnection() {
+    IoFuture<StreamConnection> connectionFuture = ioThread.openStreamConnection(address, null, OptionMap.EMPTY);
+    connectionFuture.addNotifier(new IoFuture.HandlingNotifier<StreamConnection, Void>() {
+      @Override
+      public void handleFailed(IOException exception, Void v) {
+        failure = exception;
+        failAllCommands();
+      }
+
+      @Override
+      public void handleDone(StreamConnection connection, Void v) {
+        redisClientConnection =
+            new RedisClientConnection(connection, bufferPool, charset, writerQueue, counters, options);
+        if (!writerQueue.isEmpty()) {
+          redisClientConnection.commandAdded();
+        }
+        connection.setCloseListener(streamConnection -> {
+          if (!closed) {
+            streamConnectionFuture = openConnection();
+          }
+        });
+      }
+    }, null);
+    return connectionFuture;
+  }
+
+  /**
+   * The writer queue has a single consumer. Commands are failed only when no connection is open, so the IO thread
+   * never polls concurrently, but senders may race with each other here.
+   */
+  private synchronized void failAllCommands() {
+    CommandEncoderDecoder commandEncoderDecoder;
+    while ((commandEncoderDecoder = writerQueue.poll()) != null) {
+      counters.outstanding.decrementAndGet();
+      commandEncoderDecoder.fail(failure);
+    }
+  }
+
+  SocketAddress address() {
+    return address;
+  }
+
+  IOException failure() {
+    return failure;
+  }
+
+  /**
+   * Returns the number of commands which are queued or written but whose replies have not been parsed yet.
+   */
+  int outstanding() {
+    return counters.outstanding.get();
+  }
+
+  /**
+   * Returns the number of commands waiting to be written.
+   */
+  int queued() {
+    return writerQueue.size();
+  }
+
+  ConnectionCounters counters() {
+    return counters;
+  }
+
+  void send(CommandEncoderDecoder command) {
+    counters.outstanding.incrementAndGet();
+    RedisClientConnection connection = redisClientConnection;
+    if (connection != null && failure == null && connection.writeInline(command)) {
+      return;
+    }
+    writerQueue.add(command);
+    if (connection != null) {
+      connection.commandAdded();
+    }
+    if (failure != null) {
+      failAllCommands();
+    }
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    IoUtils.safeClose(streamConnectionFuture);
+  }
+}
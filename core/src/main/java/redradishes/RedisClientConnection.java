@@ -3,29 +3,70 @@ package redradishes;
 import com.google.common.base.Throwables;
 import org.xnio.ByteBufferPool;
 import org.xnio.IoUtils;
+import org.xnio.OptionMap;
 import org.xnio.StreamConnection;
 import org.xnio.channels.StreamSinkChannel;
 import org.xnio.channels.StreamSourceChannel;
+import redradishes.decoder.parser.FrameDecoder;
 import redradishes.encoder.ByteSink;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
-import java.nio.charset.CharsetDecoder;
 import java.util.Arrays;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.xnio.channels.Channels.resumeWritesAsync;
 
 class RedisClientConnection {
-  private final BlockingQueue<ReplyDecoder> decoderQueue = new LinkedBlockingQueue<>();
+  /**
+   * The IO thread cannot delay tasks more precisely, so a coalescing delay with less than this remaining waits for one
+   * round of IO thread tasks instead of the timer.
+   */
+  private static final long SCHEDULER_RESOLUTION_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+  private final SpscChunkedQueue<ReplyDecoder> decoderQueue = new SpscChunkedQueue<>();
   private final StreamSinkChannel sinkChannel;
+  private final MpscChunkedQueue<CommandEncoderDecoder> commandsQueue;
+  private final ByteBufferBundle byteBufferBundle;
+  private final AtomicBoolean writeOwner = new AtomicBoolean();
+  private final boolean inlineWrites;
+  private final ConnectionCounters counters;
+  private final AdaptiveLimit adaptiveLimit;
+  private final long[] writeTimes;
+  private int writeTimesHead = 0;
+  private int writeTimesTail = 0;
+  private int inFlight = 0;
+  private boolean writesLimited = false;
+  private final long coalescingDelayNanos;
+  private final int coalescingCommands;
+  private final int coalescingBytes;
+  private long coalescingStart;
+  private int unwrittenCommands = 0;
+  private boolean flushScheduled = false;
+  private boolean lastRound = false;
   private ReplyDecoder currentDecoder;
 
   RedisClientConnection(StreamConnection connection, ByteBufferPool bufferPool, Charset charset,
-      BlockingQueue<CommandEncoderDecoder> commandsQueue) {
-    CharsetDecoder charsetDecoder = charset.newDecoder();
+      MpscChunkedQueue<CommandEncoderDecoder> commandsQueue, ConnectionCounters counters, OptionMap options) {
+    this.commandsQueue = commandsQueue;
+    this.counters = counters;
+    if (options.get(RedisClientOptions.ADAPTIVE_PIPELINE_LIMIT, false)) {
+      this.adaptiveLimit = new AdaptiveLimit();
+      this.writeTimes = new long[AdaptiveLimit.MAX_LIMIT];
+    } else {
+      this.adaptiveLimit = null;
+      this.writeTimes = null;
+    }
+    this.coalescingDelayNanos =
+        TimeUnit.MICROSECONDS.toNanos(options.get(RedisClientOptions.WRITE_COALESCING_DELAY, 0));
+    this.coalescingCommands = options.get(RedisClientOptions.WRITE_COALESCING_COMMANDS, 64);
+    this.coalescingBytes = options.get(RedisClientOptions.WRITE_COALESCING_BYTES, 8192);
+    // Replies decrement the number of commands in flight on the IO thread, so it is only maintained for the adaptive
+    // limit, and writes which are delayed until later must stay on the IO thread
+    this.inlineWrites = options.get(RedisClientOptions.INLINE_WRITES, false) && adaptiveLimit == null &&
+        coalescingDelayNanos == 0;
+    FrameDecoder frameDecoder = new FrameDecoder(charset.newDecoder());
     StreamSourceChannel sourceChannel = connection.getSourceChannel();
     this.sinkChannel = connection.getSinkChannel();
     sourceChannel.getReadSetter().set(inChannel -> {
@@ -35,8 +76,10 @@ class RedisClientConnection {
           readBuffer.flip();
           try {
             while (readBuffer.hasRemaining()) {
-              if (decoder().parse(readBuffer, charsetDecoder)) {
+              if (decoder().parse(readBuffer, frameDecoder)) {
                 currentDecoder = null;
+                counters.outstanding.decrementAndGet();
+                replied();
               }
             }
           } finally {
@@ -56,36 +99,168 @@ class RedisClientConnection {
       failUnfinished(new IOException("Server closed connection"));
     });
     sourceChannel.resumeReads();
-    ByteBufferBundle byteBufferBundle = new ByteBufferBundle(bufferPool);
+    this.byteBufferBundle = new ByteBufferBundle(bufferPool);
     this.sinkChannel.getWriteSetter().set(outChannel -> {
+      if (!writeOwner.compareAndSet(false, true)) {
+        // A caller is writing inline. Writes stay resumed, so the handler runs again.
+        return;
+      }
       try {
-        while (!commandsQueue.isEmpty() || !byteBufferBundle.isEmpty()) {
-          ByteSink sink = new ByteBufferSink(byteBufferBundle);
-          CommandEncoderDecoder command;
-          while (byteBufferBundle.allocSize() <= 1 && (command = commandsQueue.poll()) != null) {
+        writeQueued(outChannel);
+      } finally {
+        writeOwner.set(false);
+      }
+    });
+  }
+
+  private void writeQueued(StreamSinkChannel outChannel) {
+    try {
+      while (true) {
+        ByteSink sink = null;
+        int limit = pipelineLimit();
+        long now = System.nanoTime();
+        CommandEncoderDecoder command;
+        while (byteBufferBundle.allocSize() <= 1 && inFlight < limit && (command = commandsQueue.poll()) != null) {
+          if (command.isAbandoned(now)) {
+            counters.shed.increment();
+            counters.outstanding.decrementAndGet();
+            command.cancel();
+            continue;
+          }
+          if (command.expectsReply()) {
             decoderQueue.add(command);
-            command.writeTo(sink);
+            if (adaptiveLimit != null) {
+              inFlight++;
+              writeTimes[writeTimesTail++ & (writeTimes.length - 1)] = now;
+            }
+          } else {
+            counters.outstanding.decrementAndGet();
           }
-          long bytesWritten = byteBufferBundle.writeTo(outChannel);
-          if (bytesWritten == 0) {
-            return;
+          if (unwrittenCommands++ == 0) {
+            coalescingStart = now;
           }
+          if (sink == null) {
+            // The sink takes a buffer from the bundle, so it is only created when there is something to write
+            sink = new ByteBufferSink(byteBufferBundle);
+          }
+          command.writeTo(sink);
+        }
+        if (byteBufferBundle.isEmpty()) {
+          // Writes are resumed when a reply brings the number of commands in flight under the limit
+          writesLimited = inFlight >= limit && !commandsQueue.isEmpty();
+          break;
+        }
+        if (coalescingDelayNanos > 0 && !flushDue(limit)) {
+          awaitMoreCommands(outChannel);
+          return;
+        }
+        long bytesWritten = byteBufferBundle.writeTo(outChannel);
+        counters.writes.increment();
+        counters.writtenCommands.add(unwrittenCommands);
+        unwrittenCommands = 0;
+        lastRound = false;
+        if (bytesWritten == 0) {
+          return;
         }
-      } catch (Throwable e) {
-        IoUtils.safeClose(sinkChannel);
-        failUnfinished(e);
       }
-      outChannel.suspendWrites();
-    });
+    } catch (Throwable e) {
+      IoUtils.safeClose(sinkChannel);
+      failUnfinished(e);
+    }
+    outChannel.suspendWrites();
+  }
+
+  /**
+   * Writes the command on the calling thread if nothing is queued or being written. Returns {@code false} if the
+   * command has to be queued instead.
+   */
+  boolean writeInline(CommandEncoderDecoder command) {
+    if (!inlineWrites || !commandsQueue.isEmpty() || !sinkChannel.isOpen() || !writeOwner.compareAndSet(false, true)) {
+      return false;
+    }
+    boolean unwritten;
+    try {
+      if (!byteBufferBundle.isEmpty() || !commandsQueue.isEmpty()) {
+        return false;
+      }
+      if (command.expectsReply()) {
+        // The ownership flag hands the producer side of the decoder queue over from the IO thread
+        decoderQueue.add(command);
+      } else {
+        counters.outstanding.decrementAndGet();
+      }
+      command.writeTo(new ByteBufferSink(byteBufferBundle));
+      byteBufferBundle.writeTo(sinkChannel);
+      counters.writes.increment();
+      counters.writtenCommands.increment();
+      counters.inlineWrites.increment();
+      unwritten = !byteBufferBundle.isEmpty();
+    } catch (Throwable e) {
+      IoUtils.safeClose(sinkChannel);
+      sinkChannel.getIoThread().execute(() -> failUnfinished(e));
+      return true;
+    } finally {
+      writeOwner.set(false);
+    }
+    if (unwritten) {
+      resumeWritesAsync(sinkChannel);
+    }
+    return true;
+  }
+
+  private boolean flushDue(int limit) {
+    return unwrittenCommands == 0 || unwrittenCommands >= coalescingCommands || inFlight >= limit ||
+        byteBufferBundle.allocSize() > 1 || byteBufferBundle.readableBytes() >= coalescingBytes ||
+        lastRound || System.nanoTime() - coalescingStart >= coalescingDelayNanos;
+  }
+
+  private void awaitMoreCommands(StreamSinkChannel outChannel) {
+    long remaining = coalescingStart + coalescingDelayNanos - System.nanoTime();
+    outChannel.suspendWrites();
+    if (!flushScheduled) {
+      flushScheduled = true;
+      Runnable flush = () -> {
+        flushScheduled = false;
+        outChannel.resumeWrites();
+      };
+      if (remaining < SCHEDULER_RESOLUTION_NANOS) {
+        // Commands which other callers queue before the task runs still join the write
+        lastRound = true;
+        outChannel.getIoThread().execute(flush);
+      } else {
+        outChannel.getIoThread().executeAfter(flush, remaining, TimeUnit.NANOSECONDS);
+      }
+    }
+  }
+
+  private int pipelineLimit() {
+    return adaptiveLimit != null ? adaptiveLimit.limit() : Integer.MAX_VALUE;
+  }
+
+  private void replied() {
+    if (adaptiveLimit != null) {
+      inFlight--;
+      adaptiveLimit.onReply(writeTimes[writeTimesHead++ & (writeTimes.length - 1)], System.nanoTime(), inFlight + 1);
+      if (writesLimited && inFlight < adaptiveLimit.limit()) {
+        writesLimited = false;
+        sinkChannel.resumeWrites();
+      }
+    }
   }
 
   private void failUnfinished(Throwable e) {
+    inFlight = 0;
+    unwrittenCommands = 0;
+    lastRound = false;
+    writeTimesHead = writeTimesTail;
     if (currentDecoder != null) {
+      counters.outstanding.decrementAndGet();
       currentDecoder.fail(e);
       currentDecoder = null;
     }
     ReplyDecoder decoder;
     while ((decoder = decoderQueue.poll()) != null) {
+      counters.outstanding.decrementAndGet();
       decoder.fail(e);
     }
   }
@@ -96,7 +271,7 @@ class RedisClientConnection {
       if (currentDecoder == null) {
         currentDecoder = new ReplyDecoder() {
           @Override
-          public boolean parse(ByteBuffer buffer, CharsetDecoder charsetDecoder) throws IOException {
+          public boolean parse(ByteBuffer buffer, FrameDecoder frameDecoder) throws IOException {
             int len = buffer.remaining();
             byte[] bytes = new byte[len];
             buffer.get(bytes);
@@ -125,11 +300,14 @@ class RedisClientConnection {
     if (currentDecoder != null) {
       currentDecoder.cancel();
     }
-    decoderQueue.forEach(ReplyDecoder::cancel);
+    ReplyDecoder decoder;
+    while ((decoder = decoderQueue.poll()) != null) {
+      decoder.cancel();
+    }
   }
 
   interface ReplyDecoder {
-    boolean parse(ByteBuffer buffer, CharsetDecoder charsetDecoder) throws IOException;
+    boolean parse(ByteBuffer buffer, FrameDecoder frameDecoder) throws IOException;
 
     void fail(Throwable e);
 
@@ -138,5 +316,17 @@ class RedisClientConnection {
 
   interface CommandEncoderDecoder extends ReplyDecoder {
     void writeTo(ByteSink sink);
+
+    /**
+     * Returns {@code true} if nobody waits for the reply any more, so the command need not be written.
+     */
+    boolean isAbandoned(long now);
+
+    /**
+     * Returns {@code false} if the server is told not to reply to the command, so no reply is waited for.
+     */
+    default boolean expectsReply() {
+      return true;
+    }
   }
 }
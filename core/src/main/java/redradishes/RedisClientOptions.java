@@ -0,0 +1,118 @@
+package redradishes;
+
+import org.xnio.Option;
+
+import java.util.concurrent.Executor;
+
+public final class RedisClientOptions {
+  /**
+   * Number of connections opened to the server. Connections are spread across worker IO threads and each command is
+   * sent over the connection with the fewest outstanding replies. Default is 1.
+   */
+  public static final Option<Integer> CONNECTIONS =
+      Option.simple(RedisClientOptions.class, "CONNECTIONS", Integer.class);
+
+  /**
+   * Treats the address as a seed node of a Redis Cluster. The client loads the slot map with {@code CLUSTER SLOTS},
+   * sends commands to the node owning the slot of their first key (or of the affinity key) and follows {@code MOVED}
+   * and {@code ASK} redirects. Default is {@code false}.
+   */
+  public static final Option<Boolean> CLUSTER = Option.simple(RedisClientOptions.class, "CLUSTER", Boolean.class);
+
+  /**
+   * Maximum number of commands which are queued or waiting for a reply. Each command of a batch is counted; a batch
+   * larger than the limit is admitted when nothing else is pending. Not limited by default.
+   */
+  public static final Option<Integer> MAX_PENDING_COMMANDS =
+      Option.simple(RedisClientOptions.class, "MAX_PENDING_COMMANDS", Integer.class);
+
+  /**
+   * Maximum total encoded size of commands which are queued or waiting for a reply. Not limited by default.
+   */
+  public static final Option<Long> MAX_PENDING_BYTES =
+      Option.simple(RedisClientOptions.class, "MAX_PENDING_BYTES", Long.class);
+
+  /**
+   * What to do with a command sent while a pending limit is reached. Default is {@link BackpressurePolicy#FAIL}.
+   */
+  public static final Option<BackpressurePolicy> BACKPRESSURE =
+      Option.simple(RedisClientOptions.class, "BACKPRESSURE", BackpressurePolicy.class);
+
+  /**
+   * Limits the number of commands written to each connection but not replied to yet with an adaptive (AIMD) limit
+   * driven by measured round-trip times. Commands above the limit wait in the client queue, which keeps latency low
+   * when the server saturates. Default is {@code false}.
+   */
+  public static final Option<Boolean> ADAPTIVE_PIPELINE_LIMIT =
+      Option.simple(RedisClientOptions.class, "ADAPTIVE_PIPELINE_LIMIT", Boolean.class);
+
+  /**
+   * Default time in milliseconds to wait for a reply before the future fails with
+   * {@link java.util.concurrent.TimeoutException}. Zero, the default, means no timeout.
+   */
+  public static final Option<Integer> COMMAND_TIMEOUT =
+      Option.simple(RedisClientOptions.class, "COMMAND_TIMEOUT", Integer.class);
+
+  /**
+   * Delays writing to the socket by up to the given number of microseconds so that commands sent by several callers
+   * leave in one write. The write happens earlier once {@link #WRITE_COALESCING_COMMANDS} commands or
+   * {@link #WRITE_COALESCING_BYTES} bytes are encoded. The IO thread's timer has a resolution of a millisecond, so once
+   * less than that remains the write waits for one round of IO thread tasks instead, and a delay below a millisecond
+   * only gathers the commands queued during that round. Zero, the default, writes as soon as possible.
+   */
+  public static final Option<Integer> WRITE_COALESCING_DELAY =
+      Option.simple(RedisClientOptions.class, "WRITE_COALESCING_DELAY", Integer.class);
+
+  /**
+   * Number of commands which ends the write coalescing delay. Default is 64.
+   */
+  public static final Option<Integer> WRITE_COALESCING_COMMANDS =
+      Option.simple(RedisClientOptions.class, "WRITE_COALESCING_COMMANDS", Integer.class);
+
+  /**
+   * Number of encoded bytes which ends the write coalescing delay. Default is 8192.
+   */
+  public static final Option<Integer> WRITE_COALESCING_BYTES =
+      Option.simple(RedisClientOptions.class, "WRITE_COALESCING_BYTES", Integer.class);
+
+  /**
+   * Lets the sending thread write a command directly to the socket when nothing is queued or being written, which
+   * saves a hand-off to the IO thread. Not used together with {@link #ADAPTIVE_PIPELINE_LIMIT} or
+   * {@link #WRITE_COALESCING_DELAY}. Default is {@code false}.
+   */
+  public static final Option<Boolean> INLINE_WRITES =
+      Option.simple(RedisClientOptions.class, "INLINE_WRITES", Boolean.class);
+
+  /**
+   * Encodes commands on the sending thread into per-thread buffers, leaving the IO thread only to copy ready bytes to
+   * the socket. File regions and values of at least {@link redradishes.encoder.ByteSink#MIN_SHARED_LENGTH} bytes are
+   * not copied but written as they are by the IO thread. An argument which cannot be encoded then fails the future of
+   * its command instead of the connection. Default is {@code false}.
+   */
+  public static final Option<Boolean> CALLER_ENCODING =
+      Option.simple(RedisClientOptions.class, "CALLER_ENCODING", Boolean.class);
+
+  /**
+   * Where futures are completed. Default is {@link CompletionStrategy#INLINE}.
+   */
+  public static final Option<CompletionStrategy> COMPLETION =
+      Option.simple(RedisClientOptions.class, "COMPLETION", CompletionStrategy.class);
+
+  /**
+   * Executor used by {@link CompletionStrategy#EXECUTOR} and {@link CompletionStrategy#BATCHED}. Default is the common
+   * fork-join pool.
+   */
+  public static final Option<Executor> COMPLETION_EXECUTOR =
+      Option.simple(RedisClientOptions.class, "COMPLETION_EXECUTOR", Executor.class);
+
+  /**
+   * Prefixes commands sent without a future with {@code CLIENT REPLY SKIP}, so the server does not reply to them at
+   * all. Their errors then go unnoticed, and in cluster mode a command sent to the wrong node is lost. Requires Redis
+   * 3.2 or later. Default is {@code false}.
+   */
+  public static final Option<Boolean> SKIP_FORGOTTEN_REPLIES =
+      Option.simple(RedisClientOptions.class, "SKIP_FORGOTTEN_REPLIES", Boolean.class);
+
+  private RedisClientOptions() {
+  }
+}
@@ -0,0 +1,159 @@
+package redradishes;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live counters of a client. Values are read without synchronization and may be slightly out of date.
+ */
+public class RedisClientStats {
+  private final ConnectionRouter router;
+  private final PendingLimit pendingLimit;
+  private final CompletionTimes completionTimes;
+  private final LongAdder failedForgotten;
+
+  RedisClientStats(ConnectionRouter router, PendingLimit pendingLimit, CompletionTimes completionTimes,
+      LongAdder failedForgotten) {
+    this.router = router;
+    this.pendingLimit = pendingLimit;
+    this.completionTimes = completionTimes;
+    this.failedForgotten = failedForgotten;
+  }
+
+  /**
+   * Returns the number of commands waiting in the writer queues of all connections.
+   */
+  public int queuedCommands() {
+    int queued = 0;
+    for (ReconnectingConnection connection : router.connections()) {
+      queued += connection.queued();
+    }
+    return queued;
+  }
+
+  /**
+   * Returns the number of commands which are queued or written but not replied to yet, including commands deferred
+   * by {@link BackpressurePolicy#DEFER}.
+   */
+  public int pendingCommands() {
+    if (pendingLimit != null) {
+      return pendingLimit.commands() + pendingLimit.deferred();
+    }
+    int outstanding = 0;
+    for (ReconnectingConnection connection : router.connections()) {
+      outstanding += connection.outstanding();
+    }
+    return outstanding;
+  }
+
+  /**
+   * Returns the encoded size of pending commands. Only tracked when a pending limit is set.
+   */
+  public long pendingBytes() {
+    return pendingLimit != null ? pendingLimit.bytes() : 0;
+  }
+
+  /**
+   * Returns the number of commands currently held back by {@link BackpressurePolicy#DEFER}.
+   */
+  public int deferredCommands() {
+    return pendingLimit != null ? pendingLimit.deferred() : 0;
+  }
+
+  /**
+   * Returns the total number of commands dropped without being written because they were cancelled or their timeout
+   * expired while they were queued.
+   */
+  public long shedCommands() {
+    long shed = 0;
+    for (ReconnectingConnection connection : router.connections()) {
+      shed += connection.counters().shed.sum();
+    }
+    return shed;
+  }
+
+  /**
+   * Returns the total number of commands failed with {@link TooManyPendingCommandsException}.
+   */
+  public long rejectedCommands() {
+    return pendingLimit != null ? pendingLimit.rejected() : 0;
+  }
+
+  /**
+   * Returns the total number of gathering writes to the sockets of all connections.
+   */
+  public long writes() {
+    long writes = 0;
+    for (ReconnectingConnection connection : router.connections()) {
+      writes += connection.counters().writes.sum();
+    }
+    return writes;
+  }
+
+  /**
+   * Returns the total number of commands written to the sockets of all connections.
+   */
+  public long writtenCommands() {
+    long written = 0;
+    for (ReconnectingConnection connection : router.connections()) {
+      written += connection.counters().writtenCommands.sum();
+    }
+    return written;
+  }
+
+  /**
+   * Returns the number of writes done by the sending threads because their connection was idle.
+   */
+  public long inlineWrites() {
+    long writes = 0;
+    for (ReconnectingConnection connection : router.connections()) {
+      writes += connection.counters().inlineWrites.sum();
+    }
+    return writes;
+  }
+
+  /**
+   * Returns the average number of commands passed to one socket write.
+   */
+  public double commandsPerWrite() {
+    long writes = writes();
+    return writes > 0 ? (double) writtenCommands() / writes : 0;
+  }
+
+  /**
+   * Returns the number of futures completed inline with {@link CompletionStrategy#INLINE}, mostly on IO threads.
+   */
+  public long inlineCompletions() {
+    return completionTimes.completions.sum();
+  }
+
+  /**
+   * Returns the total time in nanoseconds spent completing futures inline, including callbacks run by the completing
+   * thread.
+   */
+  public long inlineCompletionNanos() {
+    return completionTimes.nanos.sum();
+  }
+
+  /**
+   * Returns the longest time in nanoseconds spent completing a single future inline. A value far above the average
+   * points to a slow callback.
+   */
+  public long maxInlineCompletionNanos() {
+    return completionTimes.maxNanos.get();
+  }
+
+  /**
+   * Returns the number of {@link ReplyCallback} invocations which threw an exception.
+   */
+  public long failedCallbacks() {
+    return completionTimes.failedCallbacks.sum();
+  }
+
+  /**
+   * Returns the number of commands sent without a future which got an error reply or could not be sent. Errors of
+   * commands sent with {@link RedisClientOptions#SKIP_FORGOTTEN_REPLIES} are not reported by the server.
+   */
+  public long failedForgottenCommands() {
+    return failedForgotten.sum();
+  }
+}
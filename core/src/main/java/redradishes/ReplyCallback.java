@@ -0,0 +1,15 @@
+package redradishes;
+
+/**
+ * Receives the reply to a command sent without a future. One instance can serve any number of commands.
+ */
+public interface ReplyCallback<T> {
+  void completed(T value);
+
+  /**
+   * Called with the error reply, a failure to communicate with the server, a
+   * {@link java.util.concurrent.TimeoutException} or a {@link java.util.concurrent.CancellationException} if the
+   * client is closed.
+   */
+  void failed(Throwable exception);
+}
@@ -2,7 +2,11 @@ package redradishes;
 
 import redradishes.decoder.parser.ReplyParser;
 import redradishes.encoder.ByteSink;
+import redradishes.encoder.KeyConsumer;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.BiFunction;
 
 public interface Request<T> {
@@ -10,6 +14,27 @@ public interface Request<T> {
 
   ReplyParser<? extends T> parser();
 
+  /**
+   * Returns the number of bytes the request is encoded to, or 0 if it is not known in advance.
+   */
+  default long length() {
+    return 0;
+  }
+
+  /**
+   * Passes the encoded keys of the request to the consumer in argument order.
+   */
+  default void keys(KeyConsumer keyConsumer) { }
+
+  /**
+   * Returns read-only views of the encoded keys of the request.
+   */
+  default List<ByteBuffer> keys() {
+    List<ByteBuffer> keys = new ArrayList<>();
+    keys((src, offset, length) -> keys.add(ByteBuffer.wrap(src, offset, length).slice().asReadOnlyBuffer()));
+    return keys;
+  }
+
   default <U, V> Request<V> combine(Request<? extends U> other, BiFunction<? super T, ? super U, ? extends V> fn) {
     return new Request<V>() {
       @Override
@@ -18,6 +43,17 @@ public interface Request<T> {
         other.writeTo(sink);
       }
 
+      @Override
+      public long length() {
+        return Request.this.length() + other.length();
+      }
+
+      @Override
+      public void keys(KeyConsumer keyConsumer) {
+        Request.this.keys(keyConsumer);
+        other.keys(keyConsumer);
+      }
+
       @Override
       public ReplyParser<V> parser() {
         return ReplyParser.combine(Request.this.parser(), other.parser(), fn);
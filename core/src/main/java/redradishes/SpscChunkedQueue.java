@@ -0,0 +1,30 @@
+package redradishes;
+
+/**
+ * Single-producer single-consumer queue. The producer needs no atomic read-modify-write operations.
+ */
+class SpscChunkedQueue<E> extends ChunkedQueue<E> {
+  private Chunk<E> tailChunk;
+
+  SpscChunkedQueue() {
+    this(new Chunk<>(0));
+  }
+
+  private SpscChunkedQueue(Chunk<E> firstChunk) {
+    super(firstChunk);
+    this.tailChunk = firstChunk;
+  }
+
+  @Override
+  void add(E e) {
+    long index = tail.get();
+    Chunk<E> chunk = tailChunk;
+    if (chunk.index != index >>> CHUNK_SHIFT) {
+      chunk = new Chunk<>(chunk.index + 1);
+      tailChunk.next = chunk;
+      tailChunk = chunk;
+    }
+    chunk.lazySet((int) index & CHUNK_MASK, e);
+    tail.lazySet(index + 1);
+  }
+}
@@ -0,0 +1,7 @@
+package redradishes;
+
+public class TooManyPendingCommandsException extends RuntimeException {
+  public TooManyPendingCommandsException(String message) {
+    super(message);
+  }
+}
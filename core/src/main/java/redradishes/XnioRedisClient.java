@@ -1,114 +1,229 @@
 package redradishes;
 
 import org.xnio.ByteBufferPool;
-import org.xnio.IoFuture;
-import org.xnio.IoUtils;
 import org.xnio.OptionMap;
-import org.xnio.StreamConnection;
 import org.xnio.XnioWorker;
 import redradishes.RedisClientConnection.CommandEncoderDecoder;
+import redradishes.commands.Command;
+import redradishes.decoder.parser.FrameDecoder;
 import redradishes.decoder.parser.ReplyParser;
 import redradishes.encoder.ByteSink;
+import redradishes.encoder.KeyConsumer;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
-import java.nio.charset.CharsetDecoder;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static redradishes.commands.CommandBuilder.command;
+import static redradishes.decoder.Replies.discardingReply;
+import static redradishes.decoder.Replies.simpleStringReply;
 
 public abstract class XnioRedisClient<F, SF extends F> implements AutoCloseable {
-  private final BlockingQueue<CommandEncoderDecoder> writerQueue = new LinkedBlockingQueue<>();
-  private volatile IoFuture<StreamConnection> streamConnectionFuture;
-  private volatile RedisClientConnection redisClientConnection;
-  private volatile IOException failure;
+  private static final Command<CharSequence> CLIENT_REPLY_SKIP =
+      command("CLIENT").withOption("REPLY").withOption("SKIP").returning(simpleStringReply());
+  private final ConnectionRouter router;
+  private final PendingLimit pendingLimit;
+  private final RedisClientStats stats;
+  private final HashedWheelTimer timer;
+  private final long defaultTimeoutNanos;
+  private final boolean callerEncoding;
+  private final Executor completionExecutor;
+  private final CompletionTimes completionTimes = new CompletionTimes();
+  private final boolean skipForgottenReplies;
+  private final LongAdder failedForgotten = new LongAdder();
   private volatile boolean closed = false;
 
   protected XnioRedisClient(XnioWorker worker, SocketAddress address, ByteBufferPool bufferPool, Charset charset) {
-    this.streamConnectionFuture = openConnection(worker, address, bufferPool, charset);
+    this(worker, address, bufferPool, charset, OptionMap.EMPTY);
   }
 
-  private IoFuture<StreamConnection> openConnection(XnioWorker worker, SocketAddress address,
-      final ByteBufferPool bufferPool, final Charset charset) {
-    IoFuture<StreamConnection> connectionFuture = worker.openStreamConnection(address, null, OptionMap.EMPTY);
-    connectionFuture.addNotifier(new IoFuture.HandlingNotifier<StreamConnection, Void>() {
-      @Override
-      public void handleFailed(IOException exception, Void v) {
-        failure = exception;
-        failAllCommands();
-      }
-
-      @Override
-      public void handleDone(StreamConnection connection, Void v) {
-        redisClientConnection = new RedisClientConnection(connection, bufferPool, charset, writerQueue);
-        if (!writerQueue.isEmpty()) {
-          redisClientConnection.commandAdded();
-        }
-        connection.setCloseListener(streamConnection -> {
-          if (!closed) {
-            streamConnectionFuture = openConnection(worker, address, bufferPool, charset);
-          }
-        });
-      }
-    }, null);
-    return connectionFuture;
+  protected XnioRedisClient(XnioWorker worker, SocketAddress address, ByteBufferPool bufferPool, Charset charset,
+      OptionMap options) {
+    this(worker, address, bufferPool, charset, options, new HashedWheelTimer(worker.getIoThread()));
   }
 
-  private void failAllCommands() {
-    CommandEncoderDecoder commandEncoderDecoder;
-    while ((commandEncoderDecoder = writerQueue.poll()) != null) {
-      commandEncoderDecoder.fail(failure);
+  protected XnioRedisClient(XnioWorker worker, SocketAddress address, ByteBufferPool bufferPool, Charset charset,
+      OptionMap options, HashedWheelTimer timer) {
+    if (options.get(RedisClientOptions.CLUSTER, false)) {
+      this.router = new ClusterRouter(worker, address, bufferPool, charset, options);
+    } else {
+      this.router = new ConnectionPool(worker, address, bufferPool, charset, options);
+    }
+    Integer maxPendingCommands = options.get(RedisClientOptions.MAX_PENDING_COMMANDS);
+    Long maxPendingBytes = options.get(RedisClientOptions.MAX_PENDING_BYTES);
+    if (maxPendingCommands != null || maxPendingBytes != null) {
+      this.pendingLimit = new PendingLimit(maxPendingCommands != null ? maxPendingCommands : Integer.MAX_VALUE,
+          maxPendingBytes != null ? maxPendingBytes : Long.MAX_VALUE,
+          options.get(RedisClientOptions.BACKPRESSURE, BackpressurePolicy.FAIL));
+    } else {
+      this.pendingLimit = null;
+    }
+    this.stats = new RedisClientStats(router, pendingLimit, completionTimes, failedForgotten);
+    this.timer = timer;
+    this.defaultTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(options.get(RedisClientOptions.COMMAND_TIMEOUT, 0));
+    this.callerEncoding = options.get(RedisClientOptions.CALLER_ENCODING, false);
+    this.skipForgottenReplies = options.get(RedisClientOptions.SKIP_FORGOTTEN_REPLIES, false);
+    Executor executor = options.get(RedisClientOptions.COMPLETION_EXECUTOR);
+    switch (options.get(RedisClientOptions.COMPLETION, CompletionStrategy.INLINE)) {
+      case EXECUTOR:
+        this.completionExecutor = executor != null ? executor : ForkJoinPool.commonPool();
+        break;
+      case BATCHED:
+        this.completionExecutor = new BatchingExecutor(executor != null ? executor : ForkJoinPool.commonPool());
+        break;
+      default:
+        this.completionExecutor = null;
     }
   }
 
+  public RedisClientStats stats() {
+    return stats;
+  }
+
   protected <T> F send_(final Request<T> request) {
+    return submit(request, null, defaultTimeoutNanos);
+  }
+
+  /**
+   * Sends the request and fails the future with {@link TimeoutException} if the reply does not arrive in time. A
+   * command which has not been written yet is dropped, and a late reply is skipped without being decoded. A timeout of
+   * zero means no timeout.
+   */
+  protected <T> F send_(final Request<T> request, long timeout, TimeUnit unit) {
+    return submit(request, null, unit.toNanos(timeout));
+  }
+
+  /**
+   * Sends the request over the connection selected by the affinity key. Requests sent with equal keys are written and
+   * completed in the order they were sent. In cluster mode the key is hashed to the cluster slot.
+   */
+  protected <T> F send_(final Request<T> request, Object affinityKey) {
+    return submit(request, affinityKey, defaultTimeoutNanos);
+  }
+
+  protected Batch newBatch() {
+    return new Batch();
+  }
+
+  /**
+   * Sends the request without creating a future and passes the reply to the callback. Exceptions thrown by the
+   * callback are counted by {@link RedisClientStats#failedCallbacks()} and otherwise ignored.
+   */
+  protected <T> void send_(final Request<T> request, ReplyCallback<? super T> callback) {
+    if (closed) {
+      callback.failed(new CancellationException());
+      return;
+    }
+    Request<T> encoded;
+    try {
+      encoded = encode(request);
+    } catch (RuntimeException e) {
+      callback.failed(e);
+      return;
+    }
+    Throwable rejection = submit(new CallbackCommand<>(encoded, callback, defaultTimeoutNanos));
+    if (rejection != null) {
+      callback.failed(rejection);
+    }
+  }
+
+  /**
+   * Sends the request without a future. The reply is skipped without being decoded. Error replies and failures to send
+   * are counted by {@link RedisClientStats#failedForgottenCommands()}.
+   */
+  protected void sendAndForget_(final Request<?> request) {
+    if (closed) {
+      return;
+    }
+    Request<Object> encoded;
+    try {
+      encoded = encode(new ForgottenRequest(request));
+    } catch (RuntimeException e) {
+      failedForgotten.increment();
+      return;
+    }
+    if (submit(new ForgottenCommand(encoded)) != null) {
+      failedForgotten.increment();
+    }
+  }
+
+  private <T> F submit(Request<T> request, @Nullable Object affinityKey, long timeoutNanos) {
     if (closed) {
       return createCancelledFuture();
     }
-    if (failure != null) {
-      return createFailedFuture(failure);
+    Request<T> encoded;
+    try {
+      encoded = encode(request);
+    } catch (RuntimeException e) {
+      return createFailedFuture(e);
     }
     final SF future = createFuture();
-    writerQueue.add(new CommandEncoderDecoder() {
-      private ReplyParser<? extends T> parser = request.parser();
+    Throwable rejection = submit(new FutureCommand<>(encoded, affinityKey, future, timeoutNanos));
+    return rejection == null ? future : createFailedFuture(rejection);
+  }
 
-      @Override
-      public void writeTo(ByteSink sink) {
-        request.writeTo(sink);
+  private <T> Request<T> encode(Request<T> request) {
+    return callerEncoding ? EncodedRequest.encode(request) : request;
+  }
+
+  /**
+   * Schedules the timeout of the command and sends it unless the pending limit rejects it. Returns the rejection, or
+   * {@code null} if the command has been sent or has already timed out while blocked.
+   */
+  @Nullable
+  private Throwable submit(ClientCommand<?> command) {
+    if (command.timeoutNanos > 0) {
+      timer.schedule(command, command.timeoutNanos);
+    }
+    if (pendingLimit == null) {
+      command.dispatch();
+    } else {
+      try {
+        pendingLimit.acquire(command);
+      } catch (TooManyPendingCommandsException e) {
+        return rejected(command, e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return rejected(command, e);
       }
+    }
+    return null;
+  }
 
+  /**
+   * Removes the timeout of a rejected command, so the rejection is its only outcome.
+   */
+  @Nullable
+  private Throwable rejected(ClientCommand<?> command, Throwable rejection) {
+    return command.finish() ? rejection : null;
+  }
+
+  private <T> ClientCommand<T> ignoringReply(Request<T> request, BatchCommand batch) {
+    return new ClientCommand<T>(encode(request), null, 0) {
       @Override
-      public boolean parse(ByteBuffer buffer, CharsetDecoder charsetDecoder) throws IOException {
-        return parser.parseReply(buffer, value -> {
-          complete(future, value);
-          return true;
-        }, partial -> {
-          parser = partial;
-          return false;
-        }, exception -> {
-          completeExceptionally(future, exception);
-          return true;
-        }, charsetDecoder);
+      void onSuccess(T value) {
       }
 
       @Override
-      public void fail(Throwable e) {
-        completeExceptionally(future, e);
+      void onFailure(Throwable e) {
+        batch.elementFailed(e);
       }
 
       @Override
-      public void cancel() {
-        XnioRedisClient.this.cancel(future);
+      void onCancel() {
       }
-    });
-    if (redisClientConnection != null) {
-      redisClientConnection.commandAdded();
-    }
-    if (failure != null) {
-      failAllCommands();
-    }
-    return future;
+    };
   }
 
   protected abstract F createCancelledFuture();
@@ -123,9 +238,513 @@ public abstract class XnioRedisClient<F, SF extends F> implements AutoCloseable
 
   protected abstract void cancel(SF future);
 
+  protected abstract boolean isCancelled(SF future);
+
+  private <T> void completeFuture(SF future, T value) {
+    if (completionExecutor != null) {
+      completionExecutor.execute(() -> complete(future, value));
+    } else {
+      long start = System.nanoTime();
+      complete(future, value);
+      completionTimes.record(start);
+    }
+  }
+
+  private void failFuture(SF future, Throwable exception) {
+    if (completionExecutor != null) {
+      completionExecutor.execute(() -> completeExceptionally(future, exception));
+    } else {
+      long start = System.nanoTime();
+      completeExceptionally(future, exception);
+      completionTimes.record(start);
+    }
+  }
+
+  private void cancelFuture(SF future) {
+    if (completionExecutor != null) {
+      completionExecutor.execute(() -> cancel(future));
+    } else {
+      long start = System.nanoTime();
+      cancel(future);
+      completionTimes.record(start);
+    }
+  }
+
   @Override
   public void close() {
     closed = true;
-    IoUtils.safeClose(streamConnectionFuture);
+    if (pendingLimit != null) {
+      pendingLimit.close();
+    }
+    router.close();
+  }
+
+  private abstract class ClientCommand<T> extends QueuedCommand<T> implements PendingLimit.Deferred {
+    private final Object affinityKey;
+    private final long length;
+    final long timeoutNanos;
+    private boolean acquired = false;
+    private BatchCommand batch;
+
+    ClientCommand(Request<T> request, @Nullable Object affinityKey, long timeoutNanos) {
+      super(router, request);
+      this.affinityKey = affinityKey;
+      this.length = pendingLimit != null ? request.length() : 0;
+      this.timeoutNanos = timeoutNanos;
+    }
+
+    @Override
+    public long length() {
+      return length;
+    }
+
+    @Override
+    public void dispatch() {
+      acquired = true;
+      if (isFinished()) {
+        // Timed out while deferred or blocked
+        release();
+        return;
+      }
+      if (closed) {
+        cancelled();
+        return;
+      }
+      ReconnectingConnection connection =
+          affinityKey == null ? router.route(request()) : router.route(request(), affinityKey);
+      IOException failure = connection.failure();
+      if (failure != null) {
+        failed(failure);
+      } else {
+        connection.send(this);
+      }
+    }
+
+    @Override
+    final void completed(T value) {
+      release();
+      if (finish()) {
+        onSuccess(value);
+        settled();
+      }
+    }
+
+    @Override
+    final void failed(Throwable e) {
+      release();
+      if (finish()) {
+        onFailure(e);
+        settled();
+      }
+    }
+
+    @Override
+    final void cancelled() {
+      release();
+      if (finish()) {
+        onCancel();
+        settled();
+      }
+    }
+
+    @Override
+    final void expired() {
+      // The slot is given back once the command is shed from the queue or its late reply has been skipped
+      onFailure(new TimeoutException("No reply in " + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms"));
+      settled();
+    }
+
+    @Override
+    final void replySkipped() {
+      release();
+    }
+
+    /**
+     * Gives back the slot of the command. Called on every way out of the queue, of which a command may take more than
+     * one, such as being cancelled by the caller and then shed by the writer.
+     */
+    private void release() {
+      if (acquired && pendingLimit != null) {
+        acquired = false;
+        pendingLimit.release(length);
+      }
+    }
+
+    private void settled() {
+      if (batch != null) {
+        batch.settled();
+      }
+    }
+
+    abstract void onSuccess(T value);
+
+    abstract void onFailure(Throwable e);
+
+    abstract void onCancel();
+  }
+
+  private class FutureCommand<T> extends ClientCommand<T> {
+    private final SF future;
+
+    FutureCommand(Request<T> request, @Nullable Object affinityKey, SF future, long timeoutNanos) {
+      super(request, affinityKey, timeoutNanos);
+      this.future = future;
+    }
+
+    @Override
+    void onSuccess(T value) {
+      completeFuture(future, value);
+    }
+
+    @Override
+    void onFailure(Throwable e) {
+      failFuture(future, e);
+    }
+
+    @Override
+    void onCancel() {
+      cancelFuture(future);
+    }
+
+    @Override
+    boolean isCancelledByCaller() {
+      return isCancelled(future);
+    }
+  }
+
+  private class CallbackCommand<T> extends ClientCommand<T> {
+    private final ReplyCallback<? super T> callback;
+
+    CallbackCommand(Request<T> request, ReplyCallback<? super T> callback, long timeoutNanos) {
+      super(request, null, timeoutNanos);
+      this.callback = callback;
+    }
+
+    @Override
+    void onSuccess(T value) {
+      if (completionExecutor != null) {
+        completionExecutor.execute(() -> notifyCompleted(value));
+      } else {
+        long start = System.nanoTime();
+        notifyCompleted(value);
+        completionTimes.record(start);
+      }
+    }
+
+    @Override
+    void onFailure(Throwable e) {
+      if (completionExecutor != null) {
+        completionExecutor.execute(() -> notifyFailed(e));
+      } else {
+        long start = System.nanoTime();
+        notifyFailed(e);
+        completionTimes.record(start);
+      }
+    }
+
+    @Override
+    void onCancel() {
+      onFailure(new CancellationException());
+    }
+
+    private void notifyCompleted(T value) {
+      try {
+        callback.completed(value);
+      } catch (RuntimeException e) {
+        completionTimes.failedCallbacks.increment();
+      }
+    }
+
+    private void notifyFailed(Throwable e) {
+      try {
+        callback.failed(e);
+      } catch (RuntimeException ex) {
+        completionTimes.failedCallbacks.increment();
+      }
+    }
+  }
+
+  private class ForgottenRequest implements Request<Object> {
+    private final Request<?> request;
+
+    ForgottenRequest(Request<?> request) {
+      this.request = request;
+    }
+
+    @Override
+    public void writeTo(ByteSink sink) {
+      if (skipForgottenReplies) {
+        CLIENT_REPLY_SKIP.writeTo(sink);
+      }
+      request.writeTo(sink);
+    }
+
+    @Override
+    public ReplyParser<?> parser() {
+      return discardingReply();
+    }
+
+    @Override
+    public long length() {
+      return skipForgottenReplies ? CLIENT_REPLY_SKIP.length() + request.length() : request.length();
+    }
+
+    @Override
+    public void keys(KeyConsumer keyConsumer) {
+      request.keys(keyConsumer);
+    }
+  }
+
+  private class ForgottenCommand extends ClientCommand<Object> {
+    ForgottenCommand(Request<Object> request) {
+      super(request, null, 0);
+    }
+
+    @Override
+    public void writeTo(ByteSink sink) {
+      super.writeTo(sink);
+      if (skipForgottenReplies) {
+        completed(null);
+      }
+    }
+
+    @Override
+    public boolean expectsReply() {
+      return !skipForgottenReplies;
+    }
+
+    @Override
+    void onSuccess(Object value) {
+    }
+
+    @Override
+    void onFailure(Throwable e) {
+      failedForgotten.increment();
+    }
+
+    @Override
+    void onCancel() {
+    }
+  }
+
+  /**
+   * Requests collected to be encoded together and written by a single gathering write on {@link #flush()}.
+   */
+  protected class Batch {
+    private BatchCommand command = new BatchCommand();
+
+    private Batch() {
+    }
+
+    public <T> F add(Request<T> request) {
+      Request<T> encoded;
+      try {
+        encoded = encode(request);
+      } catch (RuntimeException e) {
+        return createFailedFuture(e);
+      }
+      SF future = createFuture();
+      ClientCommand<T> element = new FutureCommand<>(encoded, null, future, defaultTimeoutNanos);
+      command.add(element);
+      if (defaultTimeoutNanos > 0) {
+        timer.schedule(element, defaultTimeoutNanos);
+      }
+      return future;
+    }
+
+    /**
+     * Adds a request whose reply is not needed. If it cannot be encoded, it is not sent and the batch future fails.
+     */
+    public void addIgnoringReply(Request<?> request) {
+      ClientCommand<?> element;
+      try {
+        element = ignoringReply(request, command);
+      } catch (RuntimeException e) {
+        command.elementFailed(e);
+        return;
+      }
+      command.add(element);
+    }
+
+    public int size() {
+      return command.elements.size();
+    }
+
+    /**
+     * Sends the collected requests over one connection. The returned future completes when all replies are read. It
+     * fails with the first error returned for a request added with {@link #addIgnoringReply(Request)}. Each request
+     * counts against {@link RedisClientOptions#MAX_PENDING_COMMANDS}.
+     * <p>
+     * In cluster mode the batch goes to the node owning the slot of the first key. A request which that node redirects
+     * is sent again on its own, and the returned future completes only once the reply to it has been read as well.
+     */
+    public F flush() {
+      BatchCommand flushed = command;
+      command = new BatchCommand();
+      if (closed) {
+        flushed.cancelled();
+        return flushed.future;
+      }
+      if (flushed.elements.isEmpty()) {
+        flushed.completed();
+        return flushed.future;
+      }
+      flushed.expectSettled();
+      if (pendingLimit == null) {
+        flushed.dispatch();
+      } else {
+        try {
+          pendingLimit.acquire(flushed);
+        } catch (TooManyPendingCommandsException e) {
+          flushed.failed(e);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          flushed.failed(e);
+        }
+      }
+      return flushed.future;
+    }
+  }
+
+  /**
+   * Occupies a single slot of the connection queues for all requests of a batch, so they are written together and
+   * their replies are read in turn by the element commands. It completes once the replies have been read and every
+   * element has settled, which a redirected element does on another connection.
+   */
+  private class BatchCommand implements CommandEncoderDecoder, PendingLimit.Deferred {
+    private final List<ClientCommand<?>> elements = new ArrayList<>();
+    private final SF future = createFuture();
+    private long length = -1;
+    private int current = 0;
+    private Throwable error;
+    private boolean acquired = false;
+    /**
+     * Elements which have not settled yet plus one for reading the replies. Elements settling before the batch is
+     * flushed take it below zero, so it only reaches zero once everything is done.
+     */
+    private final AtomicInteger unsettled = new AtomicInteger();
+
+    void add(ClientCommand<?> element) {
+      element.batch = this;
+      elements.add(element);
+    }
+
+    void expectSettled() {
+      unsettled.addAndGet(elements.size() + 1);
+    }
+
+    void settled() {
+      if (unsettled.decrementAndGet() == 0) {
+        completed();
+      }
+    }
+
+    @Override
+    public int commands() {
+      return elements.size();
+    }
+
+    @Override
+    public long length() {
+      if (length < 0) {
+        length = 0;
+        if (pendingLimit != null) {
+          for (ClientCommand<?> element : elements) {
+            length += element.length();
+          }
+        }
+      }
+      return length;
+    }
+
+    @Override
+    public void dispatch() {
+      acquired = true;
+      if (closed) {
+        cancelled();
+        return;
+      }
+      ReconnectingConnection connection = router.route(elements.get(0).request());
+      IOException failure = connection.failure();
+      if (failure != null) {
+        failed(failure);
+      } else {
+        connection.send(this);
+      }
+    }
+
+    @Override
+    public void writeTo(ByteSink sink) {
+      for (ClientCommand<?> element : elements) {
+        element.writeTo(sink);
+      }
+    }
+
+    @Override
+    public boolean isAbandoned(long now) {
+      return false;
+    }
+
+    @Override
+    public boolean parse(ByteBuffer buffer, FrameDecoder frameDecoder) throws IOException {
+      while (elements.get(current).parse(buffer, frameDecoder)) {
+        if (++current == elements.size()) {
+          settled();
+          return true;
+        }
+        if (!buffer.hasRemaining()) {
+          return false;
+        }
+      }
+      return false;
+    }
+
+    void elementFailed(Throwable e) {
+      if (error == null) {
+        error = e;
+      }
+    }
+
+    private void completed() {
+      release();
+      if (error == null) {
+        completeFuture(future, null);
+      } else {
+        failFuture(future, error);
+      }
+    }
+
+    @Override
+    public void fail(Throwable e) {
+      failed(e);
+    }
+
+    void failed(Throwable e) {
+      release();
+      for (int i = current; i < elements.size(); i++) {
+        elements.get(i).failed(e);
+      }
+      failFuture(future, e);
+    }
+
+    @Override
+    public void cancel() {
+      cancelled();
+    }
+
+    void cancelled() {
+      release();
+      for (int i = current; i < elements.size(); i++) {
+        elements.get(i).cancelled();
+      }
+      cancelFuture(future);
+    }
+
+    private void release() {
+      if (acquired && pendingLimit != null) {
+        acquired = false;
+        pendingLimit.release(elements.size(), length());
+      }
+    }
   }
 }
@@ -3,6 +3,7 @@ package redradishes.commands;
 import redradishes.Request;
 import redradishes.encoder.ByteSink;
 import redradishes.encoder.ConstExpr;
+import redradishes.encoder.KeyConsumer;
 import redradishes.encoder.RespEncoders;
 
 public interface Command<T> extends Request<T> {
@@ -14,4 +15,15 @@ public interface Command<T> extends Request<T> {
     ConstExpr expr = RespEncoders.array().encode(params.size()).append(params);
     expr.writeTo(sink);
   }
+
+  @Override
+  default long length() {
+    ConstExpr params = c();
+    return RespEncoders.array().encode(params.size()).length() + params.length();
+  }
+
+  @Override
+  default void keys(KeyConsumer keyConsumer) {
+    c().keys(keyConsumer);
+  }
 }
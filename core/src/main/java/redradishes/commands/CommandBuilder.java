@@ -113,6 +113,10 @@ public class CommandBuilder {
       return withArg(s, Encoders.strArg(charset));
     }
 
+    default S withKeyArg(CharSequence key, Charset charset) {
+      return withArg(key, Encoders.keyArg(charset));
+    }
+
     default S withOption(CharSequence s) {
       return withArg(s, Encoders.strArg(US_ASCII));
     }
@@ -1,7 +1,13 @@
 package redradishes.decoder;
 
+import redradishes.decoder.parser.Ascii;
+
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CoderResult;
@@ -73,6 +79,12 @@ public class BulkStringBuilders {
         @Override
         public SimpleBulkStringBuilderFactory.Builder<Long> append(ByteBuffer buffer) {
           while (buffer.hasRemaining()) {
+            if (state == DIGIT) {
+              num = Ascii.appendDigits(buffer, num);
+              if (!buffer.hasRemaining()) {
+                break;
+              }
+            }
             byte b = buffer.get();
             switch (state) {
               case SIGN_OR_DIGIT:
@@ -150,4 +162,43 @@ public class BulkStringBuilders {
   public static BulkStringBuilderFactory<?, byte[]> byteArray() {
     return BYTE_ARRAY_BUILDER_FACTORY;
   }
+
+  /**
+   * Writes the bulk string to the channel as it arrives instead of keeping it in memory, and returns the number of
+   * bytes written. The channel is written on the IO thread, so it should be a blocking channel which does not block for
+   * long, such as a {@link java.nio.channels.FileChannel}. A failed write fails the reply.
+   */
+  public static BulkStringBuilderFactory<?, Long> channel(WritableByteChannel channel) {
+    return new BulkStringBuilderFactory<Long, Long>() {
+      @Override
+      public Long create(int length, CharsetDecoder charsetDecoder) {
+        return 0L;
+      }
+
+      @Override
+      public Long append(Long written, ByteBuffer buffer, CharsetDecoder charsetDecoder) throws IOException {
+        return written + write(buffer);
+      }
+
+      @Override
+      public Long appendLast(Long written, ByteBuffer buffer, CharsetDecoder charsetDecoder) throws IOException {
+        return written + write(buffer);
+      }
+
+      private long write(ByteBuffer buffer) throws IOException {
+        long written = 0;
+        while (buffer.hasRemaining()) {
+          written += channel.write(buffer);
+        }
+        return written;
+      }
+    };
+  }
+
+  /**
+   * Writes the bulk string to the stream as it arrives. See {@link #channel(WritableByteChannel)}.
+   */
+  public static BulkStringBuilderFactory<?, Long> outputStream(OutputStream out) {
+    return channel(Channels.newChannel(out));
+  }
 }
@@ -0,0 +1,25 @@
+package redradishes.decoder;
+
+import javax.annotation.Nullable;
+
+/**
+ * Receives the elements of an array reply as they are parsed. Methods are called on the IO thread of the connection.
+ */
+public interface ElementConsumer<E> {
+  void element(@Nullable E element);
+
+  /**
+   * Called after the last element, or without elements for a nil array.
+   */
+  void completed();
+
+  /**
+   * Called instead of {@link #completed()} if the reply is an error or cannot be parsed, or if {@link #element(Object)}
+   * has thrown. No more elements are passed after that.
+   * <p>
+   * It is not called if the connection fails while the reply arrives, in which case neither method is called and only
+   * the future or callback of the command reports the failure. Neither is called either for a command which is
+   * cancelled or times out before its reply arrives, since the reply is skipped.
+   */
+  void failed(Throwable e);
+}
@@ -0,0 +1,123 @@
+package redradishes.decoder;
+
+import java.util.function.LongConsumer;
+
+/**
+ * A set of {@code long} values stored in an open-addressing table with linear probing. Zero, which marks free slots,
+ * is kept aside. Not thread-safe.
+ */
+public final class LongSet {
+  private static final int MIN_CAPACITY = 8;
+  private long[] slots;
+  private int size;
+  private boolean containsZero;
+
+  public LongSet() {
+    this(0);
+  }
+
+  /**
+   * Creates a set which holds {@code expectedSize} values without growing.
+   */
+  public LongSet(int expectedSize) {
+    slots = new long[capacity(expectedSize)];
+  }
+
+  public boolean add(long value) {
+    if (value == 0) {
+      if (containsZero) {
+        return false;
+      }
+      containsZero = true;
+      size++;
+      return true;
+    }
+    int mask = slots.length - 1;
+    for (int i = index(value, mask); ; i = (i + 1) & mask) {
+      long slot = slots[i];
+      if (slot == 0) {
+        slots[i] = value;
+        if (++size > slots.length / 2) {
+          grow();
+        }
+        return true;
+      } else if (slot == value) {
+        return false;
+      }
+    }
+  }
+
+  public boolean contains(long value) {
+    if (value == 0) {
+      return containsZero;
+    }
+    int mask = slots.length - 1;
+    for (int i = index(value, mask); ; i = (i + 1) & mask) {
+      long slot = slots[i];
+      if (slot == 0) {
+        return false;
+      } else if (slot == value) {
+        return true;
+      }
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public void forEach(LongConsumer action) {
+    if (containsZero) {
+      action.accept(0);
+    }
+    for (long slot : slots) {
+      if (slot != 0) {
+        action.accept(slot);
+      }
+    }
+  }
+
+  public long[] toArray() {
+    long[] values = new long[size];
+    int i = containsZero ? 1 : 0;
+    for (long slot : slots) {
+      if (slot != 0) {
+        values[i++] = slot;
+      }
+    }
+    return values;
+  }
+
+  private void grow() {
+    long[] oldSlots = slots;
+    slots = new long[oldSlots.length * 2];
+    int mask = slots.length - 1;
+    for (long value : oldSlots) {
+      if (value != 0) {
+        int i = index(value, mask);
+        while (slots[i] != 0) {
+          i = (i + 1) & mask;
+        }
+        slots[i] = value;
+      }
+    }
+  }
+
+  private static int capacity(int expectedSize) {
+    int capacity = MIN_CAPACITY;
+    while (capacity / 2 < expectedSize && capacity < 1 << 30) {
+      capacity *= 2;
+    }
+    return capacity;
+  }
+
+  private static int index(long value, int mask) {
+    // Fibonacci hashing spreads sequential ids over the table
+    long hash = value * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ hash >>> 32) & mask;
+  }
+}
@@ -0,0 +1,27 @@
+package redradishes.decoder;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Builds an array reply from the bytes of its bulk string elements, so that primitive values are stored without
+ * creating an object per element. Builders are used by one connection at a time and see one element after another.
+ */
+public interface PrimitiveArrayBuilderFactory<T> {
+  Builder<T> create(int length);
+
+  interface Builder<T> {
+    /**
+     * Consumes the next bytes of the current element. An element may arrive in several chunks.
+     */
+    void append(ByteBuffer buffer) throws Exception;
+
+    /**
+     * Called after the last bytes of the current element, including an empty one.
+     */
+    void endElement() throws Exception;
+
+    void nilElement();
+
+    T build();
+  }
+}
@@ -0,0 +1,229 @@
+package redradishes.decoder;
+
+import redradishes.decoder.parser.Ascii;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Builders of primitive arrays and sets from array replies of numbers, for use with
+ * {@link Replies#arrayReply(PrimitiveArrayBuilderFactory)} and {@link Replies#scanReply(PrimitiveArrayBuilderFactory)}.
+ * Nil elements are stored as zero in integral arrays, as {@code NaN} in {@code double} arrays and are skipped by sets.
+ */
+public class PrimitiveArrayBuilders {
+  private static final double[] POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19,
+      1e20, 1e21, 1e22};
+  private static final int MAX_EXACT_DIGITS = 15;
+
+  public static PrimitiveArrayBuilderFactory<long[]> longArray() {
+    return length -> new LongBuilder<long[]>() {
+      private final long[] array = new long[length];
+      private int i = 0;
+
+      @Override
+      void add(long value) {
+        array[i++] = value;
+      }
+
+      @Override
+      public void nilElement() {
+        i++;
+      }
+
+      @Override
+      public long[] build() {
+        return array;
+      }
+    };
+  }
+
+  public static PrimitiveArrayBuilderFactory<int[]> intArray() {
+    return length -> new LongBuilder<int[]>() {
+      private final int[] array = new int[length];
+      private int i = 0;
+
+      @Override
+      void add(long value) {
+        array[i++] = (int) value;
+      }
+
+      @Override
+      public void nilElement() {
+        i++;
+      }
+
+      @Override
+      public int[] build() {
+        return array;
+      }
+    };
+  }
+
+  public static PrimitiveArrayBuilderFactory<LongSet> longSet() {
+    return length -> new LongBuilder<LongSet>() {
+      private final LongSet set = new LongSet(length);
+
+      @Override
+      void add(long value) {
+        set.add(value);
+      }
+
+      @Override
+      public void nilElement() {
+      }
+
+      @Override
+      public LongSet build() {
+        return set;
+      }
+    };
+  }
+
+  /**
+   * Parses elements such as {@code 3.5}, {@code -1e-7} and {@code inf} as formatted by Redis. Decimals of up to 15
+   * significant digits with small exponents are converted directly, others with {@link Double#parseDouble(String)}.
+   */
+  public static PrimitiveArrayBuilderFactory<double[]> doubleArray() {
+    return length -> new PrimitiveArrayBuilderFactory.Builder<double[]>() {
+      private final double[] array = new double[length];
+      private int i = 0;
+      private byte[] text = new byte[32];
+      private int textLength = 0;
+
+      @Override
+      public void append(ByteBuffer buffer) {
+        int len = buffer.remaining();
+        if (textLength + len > text.length) {
+          text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + len));
+        }
+        buffer.get(text, textLength, len);
+        textLength += len;
+      }
+
+      @Override
+      public void endElement() {
+        array[i++] = parseDouble(text, textLength);
+        textLength = 0;
+      }
+
+      @Override
+      public void nilElement() {
+        array[i++] = Double.NaN;
+      }
+
+      @Override
+      public double[] build() {
+        return array;
+      }
+    };
+  }
+
+  static double parseDouble(byte[] text, int length) {
+    int i = 0;
+    boolean negative = length > 0 && text[0] == '-';
+    if (negative || length > 0 && text[0] == '+') {
+      i++;
+    }
+    long mantissa = 0;
+    int significantDigits = 0;
+    int exponent = 0;
+    boolean hasDigits = false;
+    for (; i < length && isDigit(text[i]); i++) {
+      mantissa = mantissa * 10 + (text[i] - '0');
+      significantDigits += mantissa != 0 ? 1 : 0;
+      hasDigits = true;
+    }
+    if (i < length && text[i] == '.') {
+      for (i++; i < length && isDigit(text[i]); i++) {
+        mantissa = mantissa * 10 + (text[i] - '0');
+        significantDigits += mantissa != 0 ? 1 : 0;
+        exponent--;
+        hasDigits = true;
+      }
+    }
+    if (hasDigits && i < length && (text[i] == 'e' || text[i] == 'E')) {
+      i++;
+      boolean negativeExponent = i < length && text[i] == '-';
+      if (negativeExponent || i < length && text[i] == '+') {
+        i++;
+      }
+      int e = 0;
+      hasDigits = false;
+      for (; i < length && isDigit(text[i]) && e < 1000; i++) {
+        e = e * 10 + (text[i] - '0');
+        hasDigits = true;
+      }
+      exponent += negativeExponent ? -e : e;
+    }
+    int maxExponent = POWERS_OF_TEN.length - 1;
+    if (hasDigits && i == length && significantDigits <= MAX_EXACT_DIGITS && exponent >= -maxExponent &&
+        exponent <= maxExponent) {
+      // Both the mantissa and the power of ten are exact doubles, so the single operation rounds correctly
+      double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+      return negative ? -value : value;
+    }
+    return parseSpecialDouble(new String(text, 0, length, US_ASCII));
+  }
+
+  private static double parseSpecialDouble(String text) {
+    switch (text) {
+      case "inf":
+      case "+inf":
+        return Double.POSITIVE_INFINITY;
+      case "-inf":
+        return Double.NEGATIVE_INFINITY;
+      case "nan":
+        return Double.NaN;
+      default:
+        return Double.parseDouble(text);
+    }
+  }
+
+  private static boolean isDigit(byte b) {
+    return b >= '0' && b <= '9';
+  }
+
+  /**
+   * Converts optionally negative integers the way {@link BulkStringBuilders#_long()} does, eight digits at a time
+   * where possible.
+   */
+  private abstract static class LongBuilder<T> implements PrimitiveArrayBuilderFactory.Builder<T> {
+    private boolean started = false;
+    private boolean negative = false;
+    private long num = 0;
+
+    @Override
+    public void append(ByteBuffer buffer) {
+      while (buffer.hasRemaining()) {
+        if (started) {
+          num = Ascii.appendDigits(buffer, num);
+          if (!buffer.hasRemaining()) {
+            break;
+          }
+        }
+        byte b = buffer.get();
+        if (!started && b == '-') {
+          negative = true;
+        } else if (isDigit(b)) {
+          num = num * 10 + (b - '0');
+        } else {
+          throw new IllegalStateException("Unexpected character: " + (char) b);
+        }
+        started = true;
+      }
+    }
+
+    @Override
+    public void endElement() {
+      add(negative ? -num : num);
+      started = false;
+      negative = false;
+      num = 0;
+    }
+
+    abstract void add(long value);
+  }
+}
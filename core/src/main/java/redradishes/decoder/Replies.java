@@ -3,45 +3,69 @@ package redradishes.decoder;
 import redradishes.decoder.parser.ArrayAsMapParser;
 import redradishes.decoder.parser.ArrayParser;
 import redradishes.decoder.parser.ArrayReplyParser;
-import redradishes.decoder.parser.BulkStringParser;
 import redradishes.decoder.parser.BulkStringReplyParser;
 import redradishes.decoder.parser.CombiningReplyParser;
+import redradishes.decoder.parser.DiscardingReplyParser;
 import redradishes.decoder.parser.IntegerReplyParser;
+import redradishes.decoder.parser.ObjectReplyParser;
 import redradishes.decoder.parser.ReplyParser;
 import redradishes.decoder.parser.ScanReplyParser;
 import redradishes.decoder.parser.SimpleStringReplyParser;
 
-import static redradishes.decoder.parser.CharAppendingParser.CHAR_SEQUENCE_PARSER;
-import static redradishes.decoder.parser.LongParser.INTEGER_PARSER;
-import static redradishes.decoder.parser.LongParser.LONG_PARSER;
-
 public class Replies {
 
-  private static final IntegerReplyParser<Integer> INTEGER_REPLY_PARSER = new IntegerReplyParser<>(INTEGER_PARSER);
-  private static final IntegerReplyParser<Long> LONG_REPLY_PARSER = new IntegerReplyParser<>(LONG_PARSER);
-  private static final SimpleStringReplyParser<CharSequence> SIMPLE_STRING_REPLY_PARSER =
-      new SimpleStringReplyParser<>(CHAR_SEQUENCE_PARSER);
-
   public static IntegerReplyParser<Integer> integerReply() {
-    return INTEGER_REPLY_PARSER;
+    return IntegerReplyParser.INTEGER_REPLY_PARSER;
   }
 
   public static IntegerReplyParser<Long> longReply() {
-    return LONG_REPLY_PARSER;
+    return IntegerReplyParser.LONG_REPLY_PARSER;
   }
 
   public static SimpleStringReplyParser<CharSequence> simpleStringReply() {
-    return SIMPLE_STRING_REPLY_PARSER;
+    return SimpleStringReplyParser.SIMPLE_STRING_REPLY_PARSER;
+  }
+
+  /**
+   * Parses a status reply which is one of {@link Status}. Any other status fails the reply.
+   */
+  public static SimpleStringReplyParser<Status> statusReply() {
+    return SimpleStringReplyParser.STATUS_REPLY_PARSER;
+  }
+
+  public static ObjectReplyParser objectReply() {
+    return ObjectReplyParser.OBJECT_REPLY_PARSER;
+  }
+
+  public static DiscardingReplyParser discardingReply() {
+    return DiscardingReplyParser.DISCARDING_REPLY_PARSER;
   }
 
   public static <T> BulkStringReplyParser<T> bulkStringReply(BulkStringBuilderFactory<?, ? extends T> builderFactory) {
-    return new BulkStringReplyParser<>(len -> new BulkStringParser<>(len, builderFactory));
+    return new BulkStringReplyParser<>(builderFactory);
   }
 
   public static <E, T> ArrayReplyParser<T> arrayReply(ArrayBuilderFactory<E, ? extends T> arrayBuilderFactory,
       BulkStringBuilderFactory<?, ? extends E> elementBuilderFactory) {
-    ReplyParser<E> elementParser = bulkStringReply(elementBuilderFactory);
-    return new ArrayReplyParser<>(len -> new ArrayParser<>(len, arrayBuilderFactory, elementParser));
+    return new ArrayReplyParser<>(arrayBuilderFactory, elementBuilderFactory);
+  }
+
+  /**
+   * Parses an array reply of numbers straight into a primitive array or set built by one of
+   * {@link PrimitiveArrayBuilders}, without creating an object per element.
+   */
+  public static <T> ArrayReplyParser<T> arrayReply(PrimitiveArrayBuilderFactory<? extends T> arrayBuilderFactory) {
+    return ArrayReplyParser.primitiveArrayReplyParser(arrayBuilderFactory);
+  }
+
+  /**
+   * Passes the elements of an array reply to the consumer one by one as they arrive, so they are not held in memory
+   * together. The reply value is the number of elements, or {@code null} for a nil array. Failures of the connection
+   * are only reported by the command, see {@link ElementConsumer#failed(Throwable)}.
+   */
+  public static <E> ReplyParser<Integer> streamingArrayReply(ElementConsumer<? super E> consumer,
+      BulkStringBuilderFactory<?, ? extends E> elementBuilderFactory) {
+    return StreamingArrayReply.parser(consumer, elementBuilderFactory);
   }
 
   public static <K, V, T> ArrayReplyParser<T> mapReply(MapBuilderFactory<K, V, ? extends T> arrayBuilderFactory,
@@ -57,4 +81,8 @@ public class Replies {
     ReplyParser<E> elementParser = bulkStringReply(elementBuilderFactory);
     return new ScanReplyParser<>(len -> new ArrayParser<>(len, arrayBuilderFactory, elementParser));
   }
+
+  public static <T> ScanReplyParser<T> scanReply(PrimitiveArrayBuilderFactory<? extends T> arrayBuilderFactory) {
+    return ScanReplyParser.primitiveScanReplyParser(arrayBuilderFactory);
+  }
 }
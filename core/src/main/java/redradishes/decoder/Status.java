@@ -0,0 +1,62 @@
+package redradishes.decoder;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+
+/**
+ * Common status replies. They are recognized while parsing, so {@link Replies#simpleStringReply()} returns a shared
+ * {@link String} for them and {@link Replies#statusReply()} returns the constant.
+ */
+public enum Status {
+  OK, QUEUED, PONG;
+
+  private static final Status[] VALUES = values();
+
+  /**
+   * Returns the status with the given text, or {@code null} if it is not one of the common ones.
+   */
+  @Nullable
+  public static Status of(CharSequence text) {
+    for (Status status : VALUES) {
+      if (status.name().contentEquals(text)) {
+        return status;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the status with the text between {@code from} and {@code to} in the buffer, or {@code null} if it is not
+   * one of the common ones.
+   */
+  @Nullable
+  public static Status of(ByteBuffer buffer, int from, int to) {
+    for (Status status : VALUES) {
+      if (status.matches(buffer, from, to)) {
+        return status;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the shared text of the common status equal to {@code text}, or {@code text} itself.
+   */
+  public static CharSequence intern(CharSequence text) {
+    Status status = of(text);
+    return status != null ? status.name() : text;
+  }
+
+  private boolean matches(ByteBuffer buffer, int from, int to) {
+    String name = name();
+    if (to - from != name.length()) {
+      return false;
+    }
+    for (int i = 0; i < name.length(); i++) {
+      if (buffer.get(from + i) != name.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
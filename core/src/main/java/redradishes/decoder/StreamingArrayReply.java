@@ -0,0 +1,85 @@
+package redradishes.decoder;
+
+import redradishes.decoder.parser.ReplyParser;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.util.function.Function;
+
+/**
+ * Array reply whose elements are passed to an {@link ElementConsumer} instead of being collected. The reply value is
+ * the number of elements.
+ */
+final class StreamingArrayReply {
+  private StreamingArrayReply() {
+  }
+
+  static <E> ReplyParser<Integer> parser(ElementConsumer<? super E> consumer,
+      BulkStringBuilderFactory<?, ? extends E> elementBuilderFactory) {
+    ArrayBuilderFactory<E, Forwarder<E>> forwarderFactory = length -> new Forwarder<>(consumer);
+    return notifying(Replies.arrayReply(forwarderFactory, elementBuilderFactory), consumer);
+  }
+
+  private static <E> ReplyParser<Integer> notifying(ReplyParser<? extends Forwarder<E>> parser,
+      ElementConsumer<? super E> consumer) {
+    return new ReplyParser<Integer>() {
+      @Override
+      public <U> U parseReply(ByteBuffer buffer, Function<? super Integer, U> resultHandler,
+          PartialReplyHandler<? super Integer, U> partialReplyHandler, FailureHandler<U> failureHandler,
+          CharsetDecoder charsetDecoder) {
+        return parser.parseReply(buffer, forwarder -> {
+          if (forwarder != null && forwarder.failure != null) {
+            notifyFailed(consumer, forwarder.failure);
+            return failureHandler.failure(forwarder.failure);
+          }
+          try {
+            consumer.completed();
+          } catch (RuntimeException e) {
+            return failureHandler.failure(e);
+          }
+          return resultHandler.apply(forwarder != null ? forwarder.count : null);
+        }, partial -> partialReplyHandler.partialReply(notifying(partial, consumer)), e -> {
+          notifyFailed(consumer, e);
+          return failureHandler.failure(e);
+        }, charsetDecoder);
+      }
+    };
+  }
+
+  private static void notifyFailed(ElementConsumer<?> consumer, Throwable e) {
+    try {
+      consumer.failed(e);
+    } catch (RuntimeException ignored) {
+      // The reply fails anyway
+    }
+  }
+
+  private static final class Forwarder<E> implements ArrayBuilderFactory.Builder<E, Forwarder<E>> {
+    private final ElementConsumer<? super E> consumer;
+    int count = 0;
+    RuntimeException failure;
+
+    Forwarder(ElementConsumer<? super E> consumer) {
+      this.consumer = consumer;
+    }
+
+    @Override
+    public void add(@Nullable E element) {
+      if (failure == null) {
+        try {
+          consumer.element(element);
+          count++;
+        } catch (RuntimeException e) {
+          // The parser cannot fail in the middle of the array, so the rest of it is skipped
+          failure = e;
+        }
+      }
+    }
+
+    @Override
+    public Forwarder<E> build() {
+      return this;
+    }
+  }
+}
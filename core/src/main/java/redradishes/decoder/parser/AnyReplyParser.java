@@ -1,5 +1,6 @@
 package redradishes.decoder.parser;
 
+import javax.annotation.Nullable;
 import java.nio.ByteBuffer;
 import java.nio.charset.CharsetDecoder;
 import java.util.function.Function;
@@ -10,15 +11,24 @@ class AnyReplyParser<T> implements ReplyParser<T> {
   private final ReplyParser<? extends T> integerParser;
   private final ReplyParser<? extends T> bulkStrParser;
   private final ReplyParser<? extends T> arrayParser;
+  @Nullable
+  final FrameSpec frameSpec;
 
   AnyReplyParser(ReplyParser<? extends T> simpleStrParser, ReplyParser<? extends T> errorParser,
       ReplyParser<? extends T> integerParser, ReplyParser<? extends T> bulkStrParser,
       ReplyParser<? extends T> arrayParser) {
+    this(simpleStrParser, errorParser, integerParser, bulkStrParser, arrayParser, null);
+  }
+
+  AnyReplyParser(ReplyParser<? extends T> simpleStrParser, ReplyParser<? extends T> errorParser,
+      ReplyParser<? extends T> integerParser, ReplyParser<? extends T> bulkStrParser,
+      ReplyParser<? extends T> arrayParser, @Nullable FrameSpec frameSpec) {
     this.simpleStrParser = simpleStrParser;
     this.errorParser = errorParser;
     this.integerParser = integerParser;
     this.bulkStrParser = bulkStrParser;
     this.arrayParser = arrayParser;
+    this.frameSpec = frameSpec;
   }
 
   @Override
@@ -1,5 +1,10 @@
 package redradishes.decoder.parser;
 
+import redradishes.decoder.ArrayBuilderFactory;
+import redradishes.decoder.BulkStringBuilderFactory;
+import redradishes.decoder.PrimitiveArrayBuilderFactory;
+
+import javax.annotation.Nullable;
 import java.util.function.IntFunction;
 
 import static redradishes.decoder.parser.ErrorParser.errorParser;
@@ -8,7 +13,28 @@ public class ArrayReplyParser<T> extends AnyReplyParser<T> {
   private static final UnexpectedReplyTypeParsers UNEXPECTED = new UnexpectedReplyTypeParsers("array");
 
   public ArrayReplyParser(IntFunction<? extends ReplyParser<T>> bodyParserFactory) {
+    this(bodyParserFactory, null);
+  }
+
+  public <E> ArrayReplyParser(ArrayBuilderFactory<E, ? extends T> arrayBuilderFactory,
+      BulkStringBuilderFactory<?, ? extends E> elementBuilderFactory) {
+    this(arrayBodyParserFactory(arrayBuilderFactory, new BulkStringReplyParser<>(elementBuilderFactory)),
+        FrameSpec.array(arrayBuilderFactory, elementBuilderFactory));
+  }
+
+  private ArrayReplyParser(IntFunction<? extends ReplyParser<T>> bodyParserFactory, @Nullable FrameSpec frameSpec) {
     super(UNEXPECTED.simpleStringParser(), errorParser(), UNEXPECTED.integerParser(), UNEXPECTED.nilBulkStringParser(),
-        new LenParser<>(bodyParserFactory));
+        new LenParser<>(bodyParserFactory), frameSpec);
+  }
+
+  public static <T> ArrayReplyParser<T> primitiveArrayReplyParser(
+      PrimitiveArrayBuilderFactory<? extends T> arrayBuilderFactory) {
+    return new ArrayReplyParser<>(len -> PrimitiveArrayBuilder.bodyParser(len, arrayBuilderFactory),
+        FrameSpec.primitiveArray(PrimitiveArrayBuilder.factory(arrayBuilderFactory)));
+  }
+
+  private static <E, T> IntFunction<ReplyParser<T>> arrayBodyParserFactory(
+      ArrayBuilderFactory<E, ? extends T> arrayBuilderFactory, ReplyParser<E> elementParser) {
+    return len -> new ArrayParser<>(len, arrayBuilderFactory, elementParser);
   }
 }
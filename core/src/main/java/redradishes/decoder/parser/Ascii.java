@@ -0,0 +1,108 @@
+package redradishes.decoder.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Scans and converts ASCII text eight bytes at a time (SWAR). Words are read so that the first byte is the lowest one
+ * whatever the order of the buffer, and bytes at the edges of the buffer are left to byte loops.
+ */
+public final class Ascii {
+  private static final long ONES = 0x0101010101010101L;
+  private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+  private static final long CR = '\r' * ONES;
+  private static final long ZEROS = '0' * ONES;
+
+  private Ascii() {
+  }
+
+  /**
+   * Returns the position of the first CR at or after {@code from} and before {@code to}, or -1 if there is none.
+   */
+  public static int indexOfCr(ByteBuffer buffer, int from, int to) {
+    int i = from;
+    for (; i <= to - Long.BYTES; i += Long.BYTES) {
+      long found = zeroBytes(word(buffer, i) ^ CR);
+      if (found != 0) {
+        return i + (Long.numberOfTrailingZeros(found) >>> 3);
+      }
+    }
+    for (; i < to; i++) {
+      if (buffer.get(i) == '\r') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Consumes whole runs of eight digits from the buffer and appends them to {@code num}. Stops before the first word
+   * with a byte other than a digit or with fewer than eight bytes remaining.
+   */
+  public static long appendDigits(ByteBuffer buffer, long num) {
+    int position = buffer.position();
+    int limit = buffer.limit();
+    while (position <= limit - Long.BYTES) {
+      long word = word(buffer, position);
+      if (!isEightDigits(word)) {
+        break;
+      }
+      num = num * 100_000_000 + eightDigits(word);
+      position += Long.BYTES;
+    }
+    buffer.position(position);
+    return num;
+  }
+
+  /**
+   * Converts the optionally negative number between {@code from} and {@code to}.
+   *
+   * @throws IllegalStateException if a byte other than a digit is found
+   */
+  public static long parseLong(ByteBuffer buffer, int from, int to) {
+    boolean negative = from < to && buffer.get(from) == '-';
+    int i = negative ? from + 1 : from;
+    long num = 0;
+    for (; i <= to - Long.BYTES; i += Long.BYTES) {
+      long word = word(buffer, i);
+      if (!isEightDigits(word)) {
+        break;
+      }
+      num = num * 100_000_000 + eightDigits(word);
+    }
+    for (; i < to; i++) {
+      byte b = buffer.get(i);
+      if (b < '0' || b > '9') {
+        throw new IllegalStateException("Unexpected character: " + (char) b);
+      }
+      num = num * 10 + (b - '0');
+    }
+    return negative ? -num : num;
+  }
+
+  private static long word(ByteBuffer buffer, int index) {
+    long word = buffer.getLong(index);
+    return buffer.order() == ByteOrder.BIG_ENDIAN ? Long.reverseBytes(word) : word;
+  }
+
+  /**
+   * Sets the high bit of each zero byte and only of them.
+   */
+  private static long zeroBytes(long word) {
+    return ~((word & LOW_BITS) + LOW_BITS | word | LOW_BITS);
+  }
+
+  private static boolean isEightDigits(long word) {
+    // Every byte is between 0x30 and 0x39: the high nibble is 3 and adding 6 does not carry out of the low one
+    return ((word & 0xF0F0F0F0F0F0F0F0L) | ((word + 0x0606060606060606L) & 0xF0F0F0F0F0F0F0F0L) >>> 4) ==
+        0x3333333333333333L;
+  }
+
+  private static long eightDigits(long word) {
+    long digits = word - ZEROS;
+    // Pairs, then quadruples of digits are combined in the low byte, then the low half of each half-word
+    digits = digits * 10 + (digits >>> 8);
+    return ((digits & 0x000000FF000000FFL) * (100 + (1000000L << 32)) +
+        (digits >>> 16 & 0x000000FF000000FFL) * (1 + (10000L << 32))) >>> 32;
+  }
+}
@@ -1,5 +1,8 @@
 package redradishes.decoder.parser;
 
+import redradishes.decoder.BulkStringBuilderFactory;
+
+import javax.annotation.Nullable;
 import java.util.function.IntFunction;
 
 import static redradishes.decoder.parser.ErrorParser.errorParser;
@@ -8,7 +11,15 @@ public class BulkStringReplyParser<T> extends AnyReplyParser<T> {
   private static final UnexpectedReplyTypeParsers UNEXPECTED = new UnexpectedReplyTypeParsers("bulk string");
 
   public BulkStringReplyParser(IntFunction<ReplyParser<T>> bodyParserFactory) {
+    this(bodyParserFactory, null);
+  }
+
+  public BulkStringReplyParser(BulkStringBuilderFactory<?, ? extends T> builderFactory) {
+    this(len -> new BulkStringParser<>(len, builderFactory), FrameSpec.bulkString(builderFactory));
+  }
+
+  private BulkStringReplyParser(IntFunction<ReplyParser<T>> bodyParserFactory, @Nullable FrameSpec frameSpec) {
     super(UNEXPECTED.simpleStringParser(), errorParser(), UNEXPECTED.integerParser(),
-        new LenParser<>(bodyParserFactory), UNEXPECTED.arrayParser());
+        new LenParser<>(bodyParserFactory), UNEXPECTED.arrayParser(), frameSpec);
   }
 }
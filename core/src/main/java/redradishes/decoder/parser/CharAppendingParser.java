@@ -33,23 +33,29 @@ public class CharAppendingParser<A extends Appendable> implements ReplyParser<A>
     int state = state0;
     Exception exception = exception0;
     while (buffer.hasRemaining()) {
-      byte b = buffer.get();
       switch (state) {
         case READING:
-          if (b == '\r') {
-            state = WAITING_FOR_LF;
-          } else {
+          int position = buffer.position();
+          int cr = Ascii.indexOfCr(buffer, position, buffer.limit());
+          int end = cr < 0 ? buffer.limit() : cr;
+          for (int i = position; i < end; i++) {
             try {
-              appendable.append((char) b);
+              appendable.append((char) buffer.get(i));
             } catch (Exception e) {
               if (exception == null) {
                 exception = e;
               }
             }
           }
+          if (cr < 0) {
+            buffer.position(end);
+          } else {
+            buffer.position(cr + 1);
+            state = WAITING_FOR_LF;
+          }
           break;
         case WAITING_FOR_LF:
-          if (b == '\n') {
+          if (buffer.get() == '\n') {
             return exception == null ? resultHandler.apply(appendable) : failureHandler.failure(exception);
           } else {
             throw new IllegalStateException("LF is expected");
@@ -0,0 +1,19 @@
+package redradishes.decoder.parser;
+
+import static redradishes.decoder.parser.ErrorParser.errorParser;
+import static redradishes.decoder.parser.UnexpectedReplyTypeParsers.NOOP_ARRAY_PARSER;
+import static redradishes.decoder.parser.UnexpectedReplyTypeParsers.NOOP_BULK_STRING_PARSER;
+import static redradishes.decoder.parser.UnexpectedReplyTypeParsers.NOOP_INTEGER_PARSER;
+import static redradishes.decoder.parser.UnexpectedReplyTypeParsers.NOOP_SIMPLE_STRING_PARSER;
+
+/**
+ * Skips a reply of any type without decoding it and returns {@code null}. Error replies still fail.
+ */
+public class DiscardingReplyParser extends AnyReplyParser<Object> {
+  public static final DiscardingReplyParser DISCARDING_REPLY_PARSER = new DiscardingReplyParser();
+
+  private DiscardingReplyParser() {
+    super(NOOP_SIMPLE_STRING_PARSER.map(s -> null), errorParser(), NOOP_INTEGER_PARSER, NOOP_BULK_STRING_PARSER,
+        NOOP_ARRAY_PARSER, FrameSpec.DISCARD_SPEC);
+  }
+}
@@ -1,11 +1,18 @@
 package redradishes.decoder.parser;
 
+import redradishes.ClusterRedirectException;
 import redradishes.RedisException;
 
 import static redradishes.decoder.parser.CharAppendingParser.CHAR_SEQUENCE_PARSER;
 
 class ErrorParser {
   static <T> ReplyParser<T> errorParser() {
-    return CHAR_SEQUENCE_PARSER.fail(message -> new RedisException(message.toString()));
+    return CHAR_SEQUENCE_PARSER.fail(ErrorParser::toException);
+  }
+
+  static RedisException toException(CharSequence message) {
+    String s = message.toString();
+    ClusterRedirectException redirect = ClusterRedirectException.parse(s);
+    return redirect != null ? redirect : new RedisException(s);
   }
 }
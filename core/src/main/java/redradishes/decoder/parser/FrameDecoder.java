@@ -0,0 +1,560 @@
+package redradishes.decoder.parser;
+
+import redradishes.decoder.ArrayBuilderFactory;
+import redradishes.decoder.BulkStringBuilderFactory;
+import redradishes.decoder.ReplyParseException;
+import redradishes.decoder.Status;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.util.Arrays;
+
+import static redradishes.decoder.parser.UnexpectedReplyTypeParsers.wrongType;
+
+/**
+ * Decodes replies on a reusable stack of array frames instead of continuation parsers, so that integer, simple
+ * string, bulk string and array replies are parsed without allocating anything but their values. Parsers created by
+ * {@link redradishes.decoder.Replies} for other replies are not {@link #supports(ReplyParser) supported} and are run
+ * as usual. A decoder holds the state of one reply at a time and is used by a single connection.
+ */
+public final class FrameDecoder {
+  private static final int MARKER = 0;
+  private static final int NUMBER = 1;
+  private static final int NUMBER_LF = 2;
+  private static final int LINE = 3;
+  private static final int LINE_LF = 4;
+  private static final int BULK = 5;
+  private static final int BULK_CR = 6;
+  private static final int BULK_LF = 7;
+  private static final int INITIAL_DEPTH = 4;
+  private final CharsetDecoder charsetDecoder;
+  private FrameSpec spec;
+  private int state = MARKER;
+  private byte marker;
+  private boolean negative;
+  private boolean digits;
+  private long num;
+  private StringBuilder line;
+  private BulkStringBuilderFactory<Object, ?> bulkFactory;
+  private Object bulkBuilder;
+  private Object bulkValue;
+  private int bulkRemaining;
+  private ArrayBuilderFactory.Builder<Object, ?>[] builders = newBuilders(INITIAL_DEPTH);
+  private int[] remaining = new int[INITIAL_DEPTH];
+  private int depth = 0;
+  private Object value;
+  private Throwable failure;
+
+  public FrameDecoder(CharsetDecoder charsetDecoder) {
+    this.charsetDecoder = charsetDecoder;
+  }
+
+  public static boolean supports(ReplyParser<?> parser) {
+    return parser instanceof AnyReplyParser && ((AnyReplyParser<?>) parser).frameSpec != null;
+  }
+
+  public CharsetDecoder charsetDecoder() {
+    return charsetDecoder;
+  }
+
+  /**
+   * Parses the reply expected by a {@link #supports(ReplyParser) supported} parser. Returns {@code true} once the
+   * reply is complete, then its value is returned by {@link #value()} unless {@link #failure()} is not {@code null}.
+   * The same parser must be passed until then.
+   */
+  public boolean parse(ByteBuffer buffer, ReplyParser<?> parser) {
+    if (spec == null) {
+      spec = ((AnyReplyParser<?>) parser).frameSpec;
+      value = null;
+      failure = null;
+      if (parseBuffered(buffer)) {
+        return true;
+      }
+    }
+    while (buffer.hasRemaining()) {
+      switch (state) {
+        case MARKER:
+          marker = buffer.get();
+          startToken();
+          break;
+        case NUMBER:
+          readNumber(buffer);
+          break;
+        case NUMBER_LF:
+          expectLf(buffer.get());
+          if (numberRead()) {
+            return true;
+          }
+          break;
+        case LINE:
+          readLine(buffer);
+          break;
+        case LINE_LF:
+          expectLf(buffer.get());
+          if (lineRead()) {
+            return true;
+          }
+          break;
+        case BULK:
+          readBulkString(buffer);
+          break;
+        case BULK_CR:
+          if (buffer.get() != '\r') {
+            throw new IllegalStateException("CR is expected");
+          }
+          state = BULK_LF;
+          break;
+        case BULK_LF:
+          expectLf(buffer.get());
+          Object bulkString = bulkValue;
+          bulkFactory = null;
+          bulkBuilder = null;
+          bulkValue = null;
+          if (completed(bulkString)) {
+            return true;
+          }
+          break;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Skips the rest of the reply being parsed without building its value, as if a discarding parser had been passed from
+   * the start. The reply then completes with a {@code null} value.
+   */
+  public void discardRest() {
+    if (spec != null) {
+      spec = FrameSpec.DISCARD_SPEC;
+      Arrays.fill(builders, 0, depth, null);
+      line = null;
+      bulkFactory = null;
+      bulkBuilder = null;
+      bulkValue = null;
+      failure = null;
+    }
+  }
+
+  /**
+   * Decodes a reply in one pass if it is complete in the buffer and has the expected type, which is the case for most
+   * replies. The frame boundaries are found first from line ends and declared lengths, so nothing is consumed or built
+   * otherwise and the reply is left to the resumable path.
+   */
+  private boolean parseBuffered(ByteBuffer buffer) {
+    int position = buffer.position();
+    int limit = buffer.limit();
+    if (position == limit) {
+      return false;
+    }
+    byte first = buffer.get(position);
+    int cr;
+    switch (spec.kind) {
+      case FrameSpec.INTEGER:
+      case FrameSpec.LONG:
+        if (first != ':' || (cr = lineEnd(buffer, position + 1, limit)) < 0) {
+          return false;
+        }
+        value = integer(Ascii.parseLong(buffer, position + 1, cr));
+        break;
+      case FrameSpec.SIMPLE_STRING:
+      case FrameSpec.STATUS:
+        if (first != '+' || (cr = lineEnd(buffer, position + 1, limit)) < 0) {
+          return false;
+        }
+        Status status = Status.of(buffer, position + 1, cr);
+        if (status != null) {
+          value = spec.kind == FrameSpec.STATUS ? status : status.name();
+        } else {
+          StringBuilder text = new StringBuilder(cr - position - 1);
+          for (int i = position + 1; i < cr; i++) {
+            text.append((char) buffer.get(i));
+          }
+          value = simpleString(text);
+        }
+        break;
+      case FrameSpec.BULK_STRING:
+        if (first != '$' || (cr = bulkStringEnd(buffer, position, limit)) < 0) {
+          return false;
+        }
+        value = bufferedBulkString(buffer, position, cr, null);
+        break;
+      case FrameSpec.ARRAY:
+        if (first != '*' || (cr = lineEnd(buffer, position + 1, limit)) < 0) {
+          return false;
+        }
+        long len = Ascii.parseLong(buffer, position + 1, cr);
+        int end = cr;
+        for (long i = 0; i < len && end >= 0; i++) {
+          end = end + 2 < limit && buffer.get(end + 2) == '$' ? bulkStringEnd(buffer, end + 2, limit) : -1;
+        }
+        if (end < 0) {
+          return false;
+        }
+        value = bufferedArray(buffer, position, (int) len);
+        cr = end;
+        break;
+      default:
+        return false;
+    }
+    buffer.position(cr + 2);
+    if (failure != null) {
+      value = null;
+    }
+    spec = null;
+    return true;
+  }
+
+  /**
+   * Returns the position of CR ending a bulk string which starts at the given position, or -1 if it is not complete.
+   */
+  private static int bulkStringEnd(ByteBuffer buffer, int position, int limit) {
+    int cr = lineEnd(buffer, position + 1, limit);
+    if (cr < 0) {
+      return -1;
+    }
+    long len = Ascii.parseLong(buffer, position + 1, cr);
+    if (len < 0) {
+      return cr;
+    }
+    long end = cr + 2 + len;
+    return end + 1 < limit && buffer.get((int) end) == '\r' && buffer.get((int) end + 1) == '\n' ? (int) end : -1;
+  }
+
+  @Nullable
+  private Object bufferedBulkString(ByteBuffer buffer, int position, int end,
+      @Nullable ArrayBuilderFactory.Builder<Object, ?> array) {
+    int cr = lineEnd(buffer, position + 1, end + 2);
+    int len = (int) Ascii.parseLong(buffer, position + 1, cr);
+    if (len < 0 || failure != null) {
+      return null;
+    }
+    BulkStringBuilderFactory<Object, ?> factory = bulkStringFactory(array);
+    Object builder = factory.create(len, charsetDecoder);
+    buffer.position(cr + 2);
+    return appendLast(factory, builder, buffer, end);
+  }
+
+  @Nullable
+  @SuppressWarnings("unchecked")
+  private Object bufferedArray(ByteBuffer buffer, int position, int len) {
+    if (len < 0) {
+      return null;
+    }
+    ArrayBuilderFactory.Builder<Object, ?> builder =
+        (ArrayBuilderFactory.Builder<Object, ?>) spec.arrayBuilderFactory.create(len);
+    int element = lineEnd(buffer, position + 1, buffer.limit()) + 2;
+    for (int i = 0; i < len; i++) {
+      int end = bulkStringEnd(buffer, element, buffer.limit());
+      Object bulkString = bufferedBulkString(buffer, element, end, builder);
+      if (failure == null) {
+        builder.add(bulkString);
+      }
+      element = end + 2;
+    }
+    return failure == null ? builder.build() : null;
+  }
+
+  /**
+   * Returns the position of CR followed by LF at or after the given position, or -1 if the line is not complete.
+   */
+  private static int lineEnd(ByteBuffer buffer, int position, int limit) {
+    int cr = Ascii.indexOfCr(buffer, position, limit - 1);
+    return cr >= 0 && buffer.get(cr + 1) == '\n' ? cr : -1;
+  }
+
+  @Nullable
+  public Object value() {
+    return value;
+  }
+
+  @Nullable
+  public Throwable failure() {
+    return failure;
+  }
+
+  private void startToken() {
+    switch (marker) {
+      case '+':
+        if (depth == 0 && (spec.kind == FrameSpec.SIMPLE_STRING || spec.kind == FrameSpec.STATUS)) {
+          line = new StringBuilder();
+        } else if (expectsTyped()) {
+          unexpected("simple string");
+        }
+        state = LINE;
+        break;
+      case '-':
+        if (depth == 0 || builders[depth - 1] != null) {
+          line = new StringBuilder();
+        }
+        state = LINE;
+        break;
+      case ':':
+      case '$':
+      case '*':
+        negative = false;
+        digits = false;
+        num = 0;
+        state = NUMBER;
+        break;
+      default:
+        throw new IllegalStateException("Marker is expected but '" + (char) marker + "' was found");
+    }
+  }
+
+  private void readNumber(ByteBuffer buffer) {
+    while (buffer.hasRemaining()) {
+      if (digits) {
+        num = Ascii.appendDigits(buffer, num);
+        if (!buffer.hasRemaining()) {
+          return;
+        }
+      }
+      byte b = buffer.get();
+      if (b >= '0' && b <= '9') {
+        num = num * 10 + (b - '0');
+        digits = true;
+      } else if (b == '\r') {
+        state = NUMBER_LF;
+        return;
+      } else if (b == '-' && !digits && !negative) {
+        negative = true;
+      } else {
+        throw new IllegalStateException("Unexpected character: " + (char) b);
+      }
+    }
+  }
+
+  private boolean numberRead() {
+    long n = negative ? -num : num;
+    switch (marker) {
+      case ':':
+        return completed(integer(n));
+      case '$':
+        if (n == -1) {
+          return completed(null);
+        }
+        startBulkString((int) n);
+        return false;
+      default:
+        if (n == -1) {
+          if (expectsTyped() && (depth > 0 || spec.kind != FrameSpec.ARRAY)) {
+            unexpected("array");
+          }
+          return completed(null);
+        }
+        return startArray((int) n);
+    }
+  }
+
+  @Nullable
+  private Object integer(long n) {
+    if (depth == 0) {
+      switch (spec.kind) {
+        case FrameSpec.INTEGER:
+          return (int) n;
+        case FrameSpec.LONG:
+          return n;
+        case FrameSpec.DISCARD:
+          return null;
+      }
+    }
+    if (expectsTyped()) {
+      unexpected("integer");
+    }
+    return null;
+  }
+
+  private void startBulkString(int len) {
+    if (depth == 0 ? spec.kind == FrameSpec.BULK_STRING : builders[depth - 1] != null) {
+      if (failure == null) {
+        bulkFactory = bulkStringFactory(depth == 0 ? null : builders[depth - 1]);
+        bulkBuilder = bulkFactory.create(len, charsetDecoder);
+      }
+    } else if (expectsTyped()) {
+      unexpected("bulk string");
+    }
+    bulkRemaining = len;
+    state = BULK;
+  }
+
+  /**
+   * Returns the factory of a bulk string reply or of an element of the given array. Primitive array builders parse
+   * their elements themselves.
+   */
+  @SuppressWarnings("unchecked")
+  private BulkStringBuilderFactory<Object, ?> bulkStringFactory(
+      @Nullable ArrayBuilderFactory.Builder<Object, ?> array) {
+    return (BulkStringBuilderFactory<Object, ?>) (spec.bulkStringBuilderFactory != null ?
+        spec.bulkStringBuilderFactory : array);
+  }
+
+  private void readBulkString(ByteBuffer buffer) {
+    int available = buffer.remaining();
+    if (available >= bulkRemaining) {
+      int chunkLimit = buffer.position() + bulkRemaining;
+      if (bulkFactory != null) {
+        bulkValue = appendLast(bulkFactory, bulkBuilder, buffer, chunkLimit);
+      }
+      buffer.position(chunkLimit);
+      state = BULK_CR;
+    } else if (bulkFactory != null) {
+      try {
+        bulkBuilder = bulkFactory.append(bulkBuilder, buffer, charsetDecoder);
+      } catch (Exception e) {
+        bulkStringFailed(e);
+        buffer.position(buffer.limit());
+      }
+      bulkRemaining -= available - buffer.remaining();
+    } else {
+      buffer.position(buffer.limit());
+      bulkRemaining -= available;
+    }
+  }
+
+  @Nullable
+  private Object appendLast(BulkStringBuilderFactory<Object, ?> factory, Object builder, ByteBuffer buffer,
+      int chunkLimit) {
+    int savedLimit = buffer.limit();
+    buffer.limit(chunkLimit);
+    try {
+      Object result = factory.appendLast(builder, buffer, charsetDecoder);
+      if (buffer.hasRemaining()) {
+        failed(new ReplyParseException("Bulk string decoder has not consumed all input"));
+      }
+      return result;
+    } catch (Exception e) {
+      failed(e);
+      return null;
+    } finally {
+      buffer.limit(savedLimit);
+    }
+  }
+
+  private void bulkStringFailed(Exception e) {
+    failed(e);
+    bulkFactory = null;
+    bulkBuilder = null;
+    bulkValue = null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private boolean startArray(int len) {
+    ArrayBuilderFactory.Builder<Object, ?> builder = null;
+    if (depth == 0) {
+      if (spec.kind == FrameSpec.ARRAY) {
+        builder = (ArrayBuilderFactory.Builder<Object, ?>) spec.arrayBuilderFactory.create(len);
+      } else if (spec.kind != FrameSpec.DISCARD) {
+        unexpected("array");
+      }
+    } else if (builders[depth - 1] != null) {
+      unexpected("array");
+    }
+    if (len == 0) {
+      return completed(builder != null ? builder.build() : null);
+    }
+    if (depth == builders.length) {
+      builders = Arrays.copyOf(builders, depth * 2);
+      remaining = Arrays.copyOf(remaining, depth * 2);
+    }
+    builders[depth] = builder;
+    remaining[depth] = len;
+    depth++;
+    state = MARKER;
+    return false;
+  }
+
+  private void readLine(ByteBuffer buffer) {
+    int position = buffer.position();
+    int cr = Ascii.indexOfCr(buffer, position, buffer.limit());
+    int end = cr < 0 ? buffer.limit() : cr;
+    if (line != null) {
+      for (int i = position; i < end; i++) {
+        line.append((char) buffer.get(i));
+      }
+    }
+    if (cr < 0) {
+      buffer.position(end);
+    } else {
+      buffer.position(cr + 1);
+      state = LINE_LF;
+    }
+  }
+
+  private boolean lineRead() {
+    StringBuilder text = line;
+    line = null;
+    if (marker == '-') {
+      if (text != null) {
+        failed(ErrorParser.toException(text));
+      }
+      return completed(null);
+    }
+    return completed(text != null ? simpleString(text) : null);
+  }
+
+  @Nullable
+  private Object simpleString(CharSequence text) {
+    if (spec.kind == FrameSpec.STATUS) {
+      Status status = Status.of(text);
+      if (status == null) {
+        failed(SimpleStringReplyParser.unexpectedStatus(text));
+      }
+      return status;
+    }
+    return Status.intern(text);
+  }
+
+  /**
+   * Hands a value to the enclosing array, building the arrays which are complete. Returns {@code true} when the whole
+   * reply is complete.
+   */
+  private boolean completed(@Nullable Object element) {
+    state = MARKER;
+    while (depth > 0) {
+      int top = depth - 1;
+      ArrayBuilderFactory.Builder<Object, ?> builder = builders[top];
+      if (builder != null && failure == null) {
+        builder.add(element);
+      }
+      if (--remaining[top] > 0) {
+        return false;
+      }
+      builders[top] = null;
+      depth = top;
+      element = builder != null && failure == null ? builder.build() : null;
+    }
+    value = failure == null ? element : null;
+    spec = null;
+    return true;
+  }
+
+  /**
+   * Returns {@code true} if a value at the current position must be of a certain type, which is not the case for
+   * discarded replies and for elements of arrays which are skipped.
+   */
+  private boolean expectsTyped() {
+    return depth == 0 ? spec.kind != FrameSpec.DISCARD : builders[depth - 1] != null;
+  }
+
+  private void unexpected(String actualType) {
+    failed(new ReplyParseException(wrongType(actualType, depth == 0 ? spec.expectedType : "bulk string")));
+  }
+
+  private void failed(Throwable e) {
+    if (failure == null) {
+      failure = e;
+    }
+  }
+
+  private static void expectLf(byte b) {
+    if (b != '\n') {
+      throw new IllegalStateException("LF is expected");
+    }
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static ArrayBuilderFactory.Builder<Object, ?>[] newBuilders(int size) {
+    return new ArrayBuilderFactory.Builder[size];
+  }
+}
@@ -0,0 +1,55 @@
+package redradishes.decoder.parser;
+
+import redradishes.decoder.ArrayBuilderFactory;
+import redradishes.decoder.BulkStringBuilderFactory;
+
+import javax.annotation.Nullable;
+
+/**
+ * Describes the reply expected by a parser to {@link FrameDecoder}.
+ */
+final class FrameSpec {
+  static final int INTEGER = 0;
+  static final int LONG = 1;
+  static final int SIMPLE_STRING = 2;
+  static final int BULK_STRING = 3;
+  static final int ARRAY = 4;
+  static final int DISCARD = 5;
+  static final int STATUS = 6;
+  static final FrameSpec INTEGER_SPEC = new FrameSpec(INTEGER, "integer", null, null);
+  static final FrameSpec LONG_SPEC = new FrameSpec(LONG, "integer", null, null);
+  static final FrameSpec SIMPLE_STRING_SPEC = new FrameSpec(SIMPLE_STRING, "simple string", null, null);
+  static final FrameSpec STATUS_SPEC = new FrameSpec(STATUS, "simple string", null, null);
+  static final FrameSpec DISCARD_SPEC = new FrameSpec(DISCARD, "any", null, null);
+
+  final int kind;
+  final String expectedType;
+  @Nullable
+  final BulkStringBuilderFactory<?, ?> bulkStringBuilderFactory;
+  @Nullable
+  final ArrayBuilderFactory<?, ?> arrayBuilderFactory;
+
+  private FrameSpec(int kind, String expectedType, @Nullable BulkStringBuilderFactory<?, ?> bulkStringBuilderFactory,
+      @Nullable ArrayBuilderFactory<?, ?> arrayBuilderFactory) {
+    this.kind = kind;
+    this.expectedType = expectedType;
+    this.bulkStringBuilderFactory = bulkStringBuilderFactory;
+    this.arrayBuilderFactory = arrayBuilderFactory;
+  }
+
+  static FrameSpec bulkString(BulkStringBuilderFactory<?, ?> builderFactory) {
+    return new FrameSpec(BULK_STRING, "bulk string", builderFactory, null);
+  }
+
+  static FrameSpec array(ArrayBuilderFactory<?, ?> arrayBuilderFactory,
+      BulkStringBuilderFactory<?, ?> elementBuilderFactory) {
+    return new FrameSpec(ARRAY, "array", elementBuilderFactory, arrayBuilderFactory);
+  }
+
+  /**
+   * Elements of the array are parsed by its {@link PrimitiveArrayBuilder}.
+   */
+  static FrameSpec primitiveArray(ArrayBuilderFactory<?, ?> arrayBuilderFactory) {
+    return new FrameSpec(ARRAY, "array", null, arrayBuilderFactory);
+  }
+}
@@ -1,12 +1,24 @@
 package redradishes.decoder.parser;
 
+import javax.annotation.Nullable;
+
 import static redradishes.decoder.parser.ErrorParser.errorParser;
+import static redradishes.decoder.parser.LongParser.INTEGER_PARSER;
+import static redradishes.decoder.parser.LongParser.LONG_PARSER;
 
 public class IntegerReplyParser<T> extends AnyReplyParser<T> {
   private static final UnexpectedReplyTypeParsers UNEXPECTED = new UnexpectedReplyTypeParsers("integer");
+  public static final IntegerReplyParser<Integer> INTEGER_REPLY_PARSER =
+      new IntegerReplyParser<>(INTEGER_PARSER, FrameSpec.INTEGER_SPEC);
+  public static final IntegerReplyParser<Long> LONG_REPLY_PARSER =
+      new IntegerReplyParser<>(LONG_PARSER, FrameSpec.LONG_SPEC);
 
   public IntegerReplyParser(Parser<T> parser) {
+    this(parser, null);
+  }
+
+  private IntegerReplyParser(Parser<T> parser, @Nullable FrameSpec frameSpec) {
     super(UNEXPECTED.simpleStringParser(), errorParser(), parser, UNEXPECTED.nilBulkStringParser(),
-        UNEXPECTED.arrayParser());
+        UNEXPECTED.arrayParser(), frameSpec);
   }
 }
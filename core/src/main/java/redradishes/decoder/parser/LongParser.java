@@ -23,6 +23,12 @@ public abstract class LongParser {
   private static <T> T doParse(ByteBuffer buffer, LongFunction<T> resultHandler, PartialHandler<T> partialHandler,
       boolean negative, long num, int state) {
     while (buffer.hasRemaining()) {
+      if (state == DIGIT) {
+        num = Ascii.appendDigits(buffer, num);
+        if (!buffer.hasRemaining()) {
+          break;
+        }
+      }
       byte b = buffer.get();
       switch (state) {
         case SIGN_OR_DIGIT:
@@ -0,0 +1,23 @@
+package redradishes.decoder.parser;
+
+import java.util.ArrayList;
+
+import static redradishes.decoder.ArrayBuilders.collection;
+import static redradishes.decoder.BulkStringBuilders.string;
+import static redradishes.decoder.parser.CharAppendingParser.CHAR_SEQUENCE_PARSER;
+import static redradishes.decoder.parser.ErrorParser.errorParser;
+import static redradishes.decoder.parser.LongParser.LONG_PARSER;
+
+/**
+ * Parses a reply of any type. Simple strings are returned as {@link CharSequence}, integers as {@link Long}, bulk
+ * strings as {@link String} and arrays as {@link java.util.List} of such objects.
+ */
+public class ObjectReplyParser extends AnyReplyParser<Object> {
+  public static final ObjectReplyParser OBJECT_REPLY_PARSER = new ObjectReplyParser();
+
+  private ObjectReplyParser() {
+    super(CHAR_SEQUENCE_PARSER, errorParser(), LONG_PARSER,
+        new LenParser<>(len -> new BulkStringParser<>(len, string())),
+        new LenParser<>(len -> new ArrayParser<>(len, collection(ArrayList::new), OBJECT_REPLY_PARSER)));
+  }
+}
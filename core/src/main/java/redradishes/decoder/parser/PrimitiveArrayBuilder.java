@@ -0,0 +1,62 @@
+package redradishes.decoder.parser;
+
+import redradishes.decoder.ArrayBuilderFactory;
+import redradishes.decoder.BulkStringBuilderFactory;
+import redradishes.decoder.PrimitiveArrayBuilderFactory;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharsetDecoder;
+
+/**
+ * Lets a {@link PrimitiveArrayBuilderFactory.Builder} parse the elements of its array. It is both the builder of the
+ * array and the factory of its elements, which are passed on as a marker instead of values.
+ */
+final class PrimitiveArrayBuilder<T> implements ArrayBuilderFactory.Builder<Object, T>,
+    BulkStringBuilderFactory<Object, Object> {
+  private static final Object ELEMENT = new Object();
+  private final PrimitiveArrayBuilderFactory.Builder<? extends T> builder;
+
+  private PrimitiveArrayBuilder(PrimitiveArrayBuilderFactory.Builder<? extends T> builder) {
+    this.builder = builder;
+  }
+
+  static <T> ArrayBuilderFactory<Object, T> factory(PrimitiveArrayBuilderFactory<? extends T> builderFactory) {
+    return length -> new PrimitiveArrayBuilder<>(builderFactory.create(length));
+  }
+
+  static <T> ReplyParser<T> bodyParser(int len, PrimitiveArrayBuilderFactory<? extends T> builderFactory) {
+    PrimitiveArrayBuilder<T> arrayBuilder = new PrimitiveArrayBuilder<>(builderFactory.create(len));
+    return new ArrayParser<>(len, length -> arrayBuilder, new BulkStringReplyParser<>(arrayBuilder));
+  }
+
+  @Override
+  public Object create(int length, CharsetDecoder charsetDecoder) {
+    return this;
+  }
+
+  @Override
+  public Object append(Object element, ByteBuffer buffer, CharsetDecoder charsetDecoder) throws Exception {
+    builder.append(buffer);
+    return element;
+  }
+
+  @Override
+  public Object appendLast(Object element, ByteBuffer buffer, CharsetDecoder charsetDecoder) throws Exception {
+    builder.append(buffer);
+    builder.endElement();
+    return ELEMENT;
+  }
+
+  @Override
+  public void add(@Nullable Object element) {
+    if (element == null) {
+      builder.nilElement();
+    }
+  }
+
+  @Override
+  public T build() {
+    return builder.build();
+  }
+}
@@ -2,6 +2,7 @@ package redradishes.decoder.parser;
 
 import redradishes.ScanResult;
 import redradishes.decoder.BulkStringBuilders;
+import redradishes.decoder.PrimitiveArrayBuilderFactory;
 
 import java.util.function.IntFunction;
 
@@ -19,6 +20,11 @@ public class ScanReplyParser<T> extends AnyReplyParser<ScanResult<T>> {
         scanResultParser(elementsParserFactory));
   }
 
+  public static <T> ScanReplyParser<T> primitiveScanReplyParser(
+      PrimitiveArrayBuilderFactory<? extends T> arrayBuilderFactory) {
+    return new ScanReplyParser<>(len -> PrimitiveArrayBuilder.bodyParser(len, arrayBuilderFactory));
+  }
+
   private static <T> ReplyParser<ScanResult<T>> scanResultParser(
       IntFunction<? extends ReplyParser<T>> elementsParserFactory) {
     ReplyParser<T> elementsParser = new ArrayReplyParser<>(elementsParserFactory);
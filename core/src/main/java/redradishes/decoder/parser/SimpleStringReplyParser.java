@@ -1,12 +1,47 @@
 package redradishes.decoder.parser;
 
+import redradishes.decoder.ReplyParseException;
+import redradishes.decoder.Status;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.util.function.Function;
+
+import static redradishes.decoder.parser.CharAppendingParser.CHAR_SEQUENCE_PARSER;
 import static redradishes.decoder.parser.ErrorParser.errorParser;
 
 public class SimpleStringReplyParser<T> extends AnyReplyParser<T> {
   private static final UnexpectedReplyTypeParsers UNEXPECTED = new UnexpectedReplyTypeParsers("simple string");
+  public static final SimpleStringReplyParser<CharSequence> SIMPLE_STRING_REPLY_PARSER =
+      new SimpleStringReplyParser<>(CHAR_SEQUENCE_PARSER.map(Status::intern), FrameSpec.SIMPLE_STRING_SPEC);
+  public static final SimpleStringReplyParser<Status> STATUS_REPLY_PARSER =
+      new SimpleStringReplyParser<>(statusParser(CHAR_SEQUENCE_PARSER), FrameSpec.STATUS_SPEC);
 
   public SimpleStringReplyParser(ReplyParser<? extends T> parser) {
+    this(parser, null);
+  }
+
+  private SimpleStringReplyParser(ReplyParser<? extends T> parser, @Nullable FrameSpec frameSpec) {
     super(parser, errorParser(), UNEXPECTED.integerParser(), UNEXPECTED.nilBulkStringParser(),
-        UNEXPECTED.arrayParser());
+        UNEXPECTED.arrayParser(), frameSpec);
+  }
+
+  static ReplyParseException unexpectedStatus(CharSequence text) {
+    return new ReplyParseException("Unexpected status reply: " + text);
+  }
+
+  private static ReplyParser<Status> statusParser(ReplyParser<? extends CharSequence> parser) {
+    return new ReplyParser<Status>() {
+      @Override
+      public <U> U parseReply(ByteBuffer buffer, Function<? super Status, U> resultHandler,
+          PartialReplyHandler<? super Status, U> partialReplyHandler, FailureHandler<U> failureHandler,
+          CharsetDecoder charsetDecoder) {
+        return parser.parseReply(buffer, text -> {
+          Status status = Status.of(text);
+          return status != null ? resultHandler.apply(status) : failureHandler.failure(unexpectedStatus(text));
+        }, partial -> partialReplyHandler.partialReply(statusParser(partial)), failureHandler, charsetDecoder);
+      }
+    };
   }
 }
@@ -25,14 +25,14 @@ class UnexpectedReplyTypeParsers {
       return this;
     }
   };
-  private static final ReplyParser<Appendable> NOOP_SIMPLE_STRING_PARSER =
+  static final ReplyParser<Appendable> NOOP_SIMPLE_STRING_PARSER =
       new CharAppendingParser<>(() -> NOOP_APPENDABLE);
-  private static final Parser<?> NOOP_INTEGER_PARSER = LongParser.PARSER.mapToParser(num -> null);
+  static final Parser<?> NOOP_INTEGER_PARSER = LongParser.PARSER.mapToParser(num -> null);
   private static final BulkStringBuilderFactory<?, ?> NOOP_BULK_STRING_BUILDER_FACTORY = noopBulkStringBuilderFactory();
-  private static final ReplyParser<?> NOOP_BULK_STRING_PARSER =
+  static final ReplyParser<?> NOOP_BULK_STRING_PARSER =
       new LenParser<>(len -> new BulkStringParser<>(len, NOOP_BULK_STRING_BUILDER_FACTORY));
   private static final ArrayBuilderFactory.Builder<Object, ?> NOOP_ARRAY_BUILDER_FACTORY = noopArrayBuilderFactory();
-  private static final ReplyParser<?> NOOP_ARRAY_PARSER = noopArrayParser();
+  static final ReplyParser<?> NOOP_ARRAY_PARSER = noopArrayParser();
   private static final ReplyParser<Object> NOOP_ANY_REPLY_PARSER =
       new AnyReplyParser<>(NOOP_SIMPLE_STRING_PARSER, NOOP_SIMPLE_STRING_PARSER, NOOP_INTEGER_PARSER,
           NOOP_BULK_STRING_PARSER, NOOP_ARRAY_PARSER);
@@ -49,7 +49,7 @@ class UnexpectedReplyTypeParsers {
     unexpectedArrayMessage = wrongType("array", expectedType);
   }
 
-  private static String wrongType(String actualTupe, String expectedType) {
+  static String wrongType(String actualTupe, String expectedType) {
     return String.format("Command returned %s reply while %s reply was expected", actualTupe, expectedType);
   }
 
@@ -1,8 +1,18 @@
 package redradishes.encoder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.CharsetEncoder;
 
 public interface ByteSink {
+  /**
+   * Writes of at least this many bytes may keep a reference to the source instead of copying it, so the source must
+   * not change until the command is written.
+   */
+  int MIN_SHARED_LENGTH = 8 * 1024;
+
   void write(byte b);
 
   void write(CharSequence s, CharsetEncoder charsetEncoder);
@@ -10,4 +20,47 @@ public interface ByteSink {
   void write(byte[] src);
 
   void write(byte[] src, int offset, int length);
+
+  /**
+   * Writes the remaining bytes of the buffer, which may be consumed.
+   */
+  default void write(ByteBuffer src) {
+    if (src.hasArray()) {
+      write(src.array(), src.arrayOffset() + src.position(), src.remaining());
+      src.position(src.limit());
+    } else {
+      byte[] chunk = new byte[Math.min(src.remaining(), MIN_SHARED_LENGTH)];
+      while (src.hasRemaining()) {
+        int length = Math.min(chunk.length, src.remaining());
+        src.get(chunk, 0, length);
+        write(chunk, 0, length);
+      }
+    }
+  }
+
+  /**
+   * Writes the file region. The default implementation copies it in memory-mapped chunks.
+   */
+  default void write(FileRegion region) {
+    try {
+      FileChannel channel = region.open();
+      try {
+        long position = region.position();
+        long end = position + region.count();
+        while (position < end) {
+          int length = (int) Math.min(end - position, FileRegion.MAPPED_CHUNK_SIZE);
+          write(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+          position += length;
+        }
+      } finally {
+        region.release(channel);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  default void writeKey(byte[] src, int offset, int length) {
+    write(src, offset, length);
+  }
 }
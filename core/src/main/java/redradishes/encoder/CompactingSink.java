@@ -0,0 +1,114 @@
+package redradishes.encoder;
+
+import redradishes.UncheckedCharacterCodingException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static redradishes.encoder.ConstExpr.bufferConst;
+import static redradishes.encoder.ConstExpr.bytesConst;
+import static redradishes.encoder.ConstExpr.bytesConstWithSize;
+import static redradishes.encoder.ConstExpr.fileConst;
+import static redradishes.encoder.ConstExpr.keyedBytesConst;
+
+/**
+ * Copies written bytes into arrays, except for file regions and values of at least {@link #MIN_SHARED_LENGTH} bytes
+ * which are referred to as they are.
+ */
+final class CompactingSink implements ByteSink {
+  private final List<ConstExpr> parts = new ArrayList<>();
+  private final ByteArrayOutputStream out;
+  private final int size;
+  private IntStream.Builder keys = IntStream.builder();
+
+  /**
+   * @param size the size of the whole expression, which is assigned to its first part
+   */
+  CompactingSink(int length, int size) {
+    // Large values are not copied, so they do not count towards the initial capacity
+    this.out = new ByteArrayOutputStream(Math.min(length, MIN_SHARED_LENGTH));
+    this.size = size;
+  }
+
+  @Override
+  public void write(byte b) {
+    out.write(b);
+  }
+
+  @Override
+  public void write(CharSequence s, CharsetEncoder charsetEncoder) {
+    try {
+      ByteBuffer byteBuffer = charsetEncoder.encode(CharBuffer.wrap(s));
+      out.write(byteBuffer.array(), 0, byteBuffer.remaining());
+    } catch (CharacterCodingException e) {
+      throw new UncheckedCharacterCodingException(e);
+    }
+  }
+
+  @Override
+  public void write(byte[] src) {
+    write(src, 0, src.length);
+  }
+
+  @Override
+  public void write(byte[] src, int offset, int length) {
+    if (length >= MIN_SHARED_LENGTH) {
+      addCopied();
+      parts.add(bytesConst(src, offset, length));
+    } else {
+      out.write(src, offset, length);
+    }
+  }
+
+  @Override
+  public void write(ByteBuffer src) {
+    if (src.remaining() >= MIN_SHARED_LENGTH) {
+      addCopied();
+      parts.add(bufferConst(src.slice()));
+    } else {
+      ByteSink.super.write(src);
+    }
+  }
+
+  @Override
+  public void write(FileRegion region) {
+    addCopied();
+    parts.add(fileConst(region));
+  }
+
+  @Override
+  public void writeKey(byte[] src, int offset, int length) {
+    keys.add(out.size()).add(length);
+    out.write(src, offset, length);
+  }
+
+  ConstExpr compacted() {
+    if (parts.isEmpty()) {
+      return copied();
+    }
+    addCopied();
+    return parts.stream().reduce(ConstExpr::combine).get();
+  }
+
+  private void addCopied() {
+    if (out.size() > 0 || parts.isEmpty()) {
+      parts.add(copied());
+      out.reset();
+      keys = IntStream.builder();
+    }
+  }
+
+  private ConstExpr copied() {
+    byte[] bytes = out.toByteArray();
+    int[] keyPositions = keys.build().toArray();
+    int partSize = parts.isEmpty() ? size : 0;
+    return keyPositions.length == 0 ? bytesConstWithSize(bytes, partSize) :
+        keyedBytesConst(bytes, partSize, keyPositions);
+  }
+}
@@ -3,7 +3,6 @@ package redradishes.encoder;
 import com.google.common.base.Utf8;
 import redradishes.UncheckedCharacterCodingException;
 
-import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.CharacterCodingException;
@@ -56,6 +55,8 @@ public interface ConstExpr {
     return this;
   }
 
+  default void keys(KeyConsumer keyConsumer) { }
+
   default <E extends EncoderBase<E>> E append(E enc) {
     return enc.prepend(this);
   }
@@ -125,6 +126,106 @@ public interface ConstExpr {
     };
   }
 
+  /**
+   * Refers to the remaining bytes of the buffer without changing its position.
+   */
+  static ConstExpr bufferConst(ByteBuffer src) {
+    return new ConstExpr() {
+      @Override
+      public int length() {
+        return src.remaining();
+      }
+
+      @Override
+      public void writeTo(ByteSink byteSink) {
+        byteSink.write(src.duplicate());
+      }
+
+      @Override
+      public int size() {
+        return 0;
+      }
+    };
+  }
+
+  static ConstExpr fileConst(FileRegion region) {
+    return new ConstExpr() {
+      @Override
+      public int length() {
+        return region.count();
+      }
+
+      @Override
+      public void writeTo(ByteSink byteSink) {
+        byteSink.write(region);
+      }
+
+      @Override
+      public int size() {
+        return 0;
+      }
+    };
+  }
+
+  static ConstExpr keyConst(byte[] src, int offset, int length) {
+    return new ConstExpr() {
+      @Override
+      public int length() {
+        return length;
+      }
+
+      @Override
+      public void writeTo(ByteSink byteSink) {
+        byteSink.writeKey(src, offset, length);
+      }
+
+      @Override
+      public int size() {
+        return 0;
+      }
+
+      @Override
+      public void keys(KeyConsumer keyConsumer) {
+        keyConsumer.key(src, offset, length);
+      }
+    };
+  }
+
+  /**
+   * @param keys offset and length pairs of the key arguments within {@code src}
+   */
+  static ConstExpr keyedBytesConst(byte[] src, int size, int[] keys) {
+    return new ConstExpr() {
+      @Override
+      public int length() {
+        return src.length;
+      }
+
+      @Override
+      public void writeTo(ByteSink byteSink) {
+        int pos = 0;
+        for (int i = 0; i < keys.length; i += 2) {
+          byteSink.write(src, pos, keys[i] - pos);
+          byteSink.writeKey(src, keys[i], keys[i + 1]);
+          pos = keys[i] + keys[i + 1];
+        }
+        byteSink.write(src, pos, src.length - pos);
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+
+      @Override
+      public void keys(KeyConsumer keyConsumer) {
+        for (int i = 0; i < keys.length; i += 2) {
+          keyConsumer.key(src, keys[i], keys[i + 1]);
+        }
+      }
+    };
+  }
+
   static ConstExpr strConst(CharSequence s, Charset charset) {
     return new ConstExpr() {
       @Override
@@ -189,38 +290,17 @@ public interface ConstExpr {
       }
 
       @Override
-      public ConstExpr compact() {
-        ByteArrayOutputStream out = new ByteArrayOutputStream(length());
-        ByteSink sink = new ByteSink() {
-          @Override
-          public void write(byte b) {
-            out.write(b);
-          }
-
-          @Override
-          public void write(CharSequence s, CharsetEncoder charsetEncoder) {
-            try {
-              ByteBuffer byteBuffer = charsetEncoder.encode(CharBuffer.wrap(s));
-              out.write(byteBuffer.array(), 0, byteBuffer.remaining());
-            } catch (CharacterCodingException e) {
-              throw new UncheckedCharacterCodingException(e);
-            }
-          }
-
-          @Override
-          public void write(byte[] src) {
-            out.write(src, 0, src.length);
-          }
+      public void keys(KeyConsumer keyConsumer) {
+        c1.keys(keyConsumer);
+        c2.keys(keyConsumer);
+      }
 
-          @Override
-          public void write(byte[] src, int offset, int length) {
-            out.write(src, offset, length);
-          }
-        };
+      @Override
+      public ConstExpr compact() {
+        CompactingSink sink = new CompactingSink(length(), size());
         c1.writeTo(sink);
         c2.writeTo(sink);
-        byte[] bytes = out.toByteArray();
-        return bytesConstWithSize(bytes, size());
+        return sink.compacted();
       }
     };
   }
@@ -1,14 +1,19 @@
 package redradishes.encoder;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Map;
 
+import static redradishes.encoder.RespEncoders.bufferBulkString;
 import static redradishes.encoder.RespEncoders.bytesBulkString;
+import static redradishes.encoder.RespEncoders.bytesKeyBulkString;
+import static redradishes.encoder.RespEncoders.fileBulkString;
 import static redradishes.encoder.RespEncoders.intBulkString;
 import static redradishes.encoder.RespEncoders.longBulkString;
 import static redradishes.encoder.RespEncoders.strBulkString;
+import static redradishes.encoder.RespEncoders.strKeyBulkString;
 
 public class Encoders {
 
@@ -16,6 +21,18 @@ public class Encoders {
     return strBulkString(charset);
   }
 
+  /**
+   * Encodes a key argument. Keys are exposed by {@link ConstExpr#keys(KeyConsumer)} of the encoded command, so an
+   * array or map encoder built from this one declares every element (or every map key) as a key.
+   */
+  public static Encoder<CharSequence> keyArg(Charset charset) {
+    return strKeyBulkString(charset);
+  }
+
+  public static Encoder<byte[]> bytesKeyArg() {
+    return bytesKeyBulkString();
+  }
+
   public static Encoder<Long> longArg() {
     return longBulkString();
   }
@@ -24,10 +41,31 @@ public class Encoders {
     return intBulkString();
   }
 
+  /**
+   * Encodes a byte array. An array of at least {@link ByteSink#MIN_SHARED_LENGTH} bytes is not copied when the command
+   * is created, so it must not change until the command is written.
+   */
   public static Encoder<byte[]> bytesArg() {
     return bytesBulkString();
   }
 
+  /**
+   * Encodes the remaining bytes of a heap or direct buffer without changing its position. A value of at least
+   * {@link ByteSink#MIN_SHARED_LENGTH} bytes is not copied when the command is created, so the buffer must not change
+   * until the command is written.
+   */
+  public static Encoder<ByteBuffer> byteBufferArg() {
+    return bufferBulkString();
+  }
+
+  /**
+   * Encodes a file region, which is streamed to the socket when the command is written without being loaded into
+   * memory.
+   */
+  public static Encoder<FileRegion> fileArg() {
+    return fileBulkString();
+  }
+
   public static Encoder<long[]> longArrayArg() {
     return es -> Arrays.stream(es).mapToObj(e -> longBulkString().encode(e)).reduce(ConstExpr.EMPTY, ConstExpr::append);
   }
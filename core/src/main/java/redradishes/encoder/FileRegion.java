@@ -0,0 +1,72 @@
+package redradishes.encoder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A region of a file used as a command argument. The bytes are read when the command is written, so the region must
+ * not change until then.
+ */
+public final class FileRegion {
+  /**
+   * Size of the memory-mapped chunks a region is read in when it cannot be transferred to the socket directly.
+   */
+  public static final int MAPPED_CHUNK_SIZE = 1024 * 1024;
+  private final FileChannel channel;
+  private final Path path;
+  private final long position;
+  private final int count;
+
+  private FileRegion(FileChannel channel, Path path, long position, long count) {
+    if (position < 0 || count < 0 || count > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Invalid file region: position " + position + ", count " + count);
+    }
+    this.channel = channel;
+    this.path = path;
+    this.position = position;
+    this.count = (int) count;
+  }
+
+  /**
+   * A region of an open channel, which the caller keeps open until the command is written and closes afterwards.
+   */
+  public static FileRegion of(FileChannel channel, long position, long count) {
+    return new FileRegion(channel, null, position, count);
+  }
+
+  /**
+   * The whole file, which is opened when the command is written and closed once it is sent.
+   */
+  public static FileRegion of(Path path) throws IOException {
+    return new FileRegion(null, path, 0, Files.size(path));
+  }
+
+  public long position() {
+    return position;
+  }
+
+  public int count() {
+    return count;
+  }
+
+  /**
+   * Returns the channel to read the region from. It has to be passed to {@link #release(FileChannel)} afterwards.
+   */
+  public FileChannel open() throws IOException {
+    FileChannel fileChannel = channel != null ? channel : FileChannel.open(path, StandardOpenOption.READ);
+    if (fileChannel.size() < position + count) {
+      release(fileChannel);
+      throw new IOException("File is shorter than the region: position " + position + ", count " + count);
+    }
+    return fileChannel;
+  }
+
+  public void release(FileChannel fileChannel) throws IOException {
+    if (fileChannel != channel) {
+      fileChannel.close();
+    }
+  }
+}
@@ -0,0 +1,9 @@
+package redradishes.encoder;
+
+/**
+ * Receives the encoded bytes of key arguments. The array is shared with the encoded command and must not be modified.
+ */
+@FunctionalInterface
+public interface KeyConsumer {
+  void key(byte[] src, int offset, int length);
+}
@@ -19,6 +19,7 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static redradishes.encoder.ConstExpr.NEW_ARG;
 import static redradishes.encoder.ConstExpr.byteConst;
 import static redradishes.encoder.ConstExpr.bytesConst;
+import static redradishes.encoder.ConstExpr.keyConst;
 import static redradishes.encoder.Encoder.bytesEnc;
 import static redradishes.encoder.Encoder.stringEnc;
 import static redradishes.encoder.IntEncoder.digitEncoder;
@@ -80,6 +81,18 @@ public class RespEncoders {
     }
   }
 
+  public static Encoder<CharSequence> strKeyBulkString(Charset charset) {
+    return NEW_ARG.append((Encoder<CharSequence>) s -> {
+      try {
+        ByteBuffer byteBuffer = encodeCharSeq(s, getCharsetEncoder(charset));
+        int encodedLength = byteBuffer.remaining();
+        return intEnc().encode(encodedLength).append(CR_LF).append(keyConst(byteBuffer.array(), 0, encodedLength));
+      } catch (CharacterCodingException e) {
+        throw new UncheckedCharacterCodingException(e);
+      }
+    }).append(CR_LF);
+  }
+
   static CharsetEncoder getCharsetEncoder(Charset charset) {
     return charsetDecodersMap.get().computeIfAbsent(charset, Charset::newEncoder);
   }
@@ -104,6 +117,19 @@ public class RespEncoders {
     return NEW_ARG.append(arrayLenEnc()).append(CR_LF).zip(bytesEnc()).append(CR_LF);
   }
 
+  public static Encoder<byte[]> bytesKeyBulkString() {
+    return NEW_ARG.append(arrayLenEnc()).append(CR_LF).zip(bytes -> keyConst(bytes, 0, bytes.length)).append(CR_LF);
+  }
+
+  public static Encoder<ByteBuffer> bufferBulkString() {
+    return NEW_ARG.append(intEnc().map(ByteBuffer::remaining)).append(CR_LF).zip(ConstExpr::bufferConst)
+        .append(CR_LF);
+  }
+
+  public static Encoder<FileRegion> fileBulkString() {
+    return NEW_ARG.append(intEnc().map(FileRegion::count)).append(CR_LF).zip(ConstExpr::fileConst).append(CR_LF);
+  }
+
   private static Encoder<byte[]> arrayLenEnc() {
     return intEnc().map(arr -> arr.length);
   }
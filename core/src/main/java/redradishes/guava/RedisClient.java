@@ -4,7 +4,11 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 import org.xnio.ByteBufferPool;
+import org.xnio.OptionMap;
 import org.xnio.XnioWorker;
+import redradishes.HashedWheelTimer;
+import redradishes.RedisClientStats;
+import redradishes.ReplyCallback;
 import redradishes.Request;
 import redradishes.XnioRedisClient;
 import redradishes.commands.Command1;
@@ -13,10 +17,12 @@ import redradishes.commands.Command3;
 
 import java.net.SocketAddress;
 import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
 
 public class RedisClient extends XnioRedisClient<ListenableFuture, SettableFuture> {
-  RedisClient(XnioWorker worker, SocketAddress address, ByteBufferPool bufferPool, Charset charset) {
-    super(worker, address, bufferPool, charset);
+  RedisClient(XnioWorker worker, SocketAddress address, ByteBufferPool bufferPool, Charset charset,
+      OptionMap options, HashedWheelTimer timer) {
+    super(worker, address, bufferPool, charset, options, timer);
   }
 
   @Override
@@ -50,11 +56,74 @@ public class RedisClient extends XnioRedisClient<ListenableFuture, SettableFutur
     future.cancel(true);
   }
 
+  @Override
+  protected boolean isCancelled(SettableFuture future) {
+    return future.isCancelled();
+  }
+
   @SuppressWarnings("unchecked")
   public <T> ListenableFuture<T> send(Request<T> request) {
     return send_(request);
   }
 
+  @SuppressWarnings("unchecked")
+  public <T> ListenableFuture<T> send(Request<T> request, long timeout, TimeUnit unit) {
+    return send_(request, timeout, unit);
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T> ListenableFuture<T> sendWithAffinity(Object affinityKey, Request<T> request) {
+    return send_(request, affinityKey);
+  }
+
+  /**
+   * Sends the request without creating a future. The callback is called on completion of this request only.
+   */
+  public <T> void send(Request<T> request, ReplyCallback<? super T> callback) {
+    send_(request, callback);
+  }
+
+  public final <T, R> void send(Command1<T, R> command, T arg, ReplyCallback<? super R> callback) {
+    send(command.apply(arg), callback);
+  }
+
+  public final <T1, T2, R> void send(Command2<T1, T2, R> command, T1 arg1, T2 arg2,
+      ReplyCallback<? super R> callback) {
+    send(command.apply(arg1, arg2), callback);
+  }
+
+  public final <T1, T2, T3, R> void send(Command3<T1, T2, T3, R> command, T1 arg1, T2 arg2, T3 arg3,
+      ReplyCallback<? super R> callback) {
+    send(command.apply(arg1, arg2, arg3), callback);
+  }
+
+  /**
+   * Sends the request without waiting for its reply, which is skipped without being decoded. Errors are only counted
+   * by {@link RedisClientStats#failedForgottenCommands()}.
+   */
+  public void sendAndForget(Request<?> request) {
+    sendAndForget_(request);
+  }
+
+  public final <T> void sendAndForget(Command1<T, ?> command, T arg) {
+    sendAndForget(command.apply(arg));
+  }
+
+  public final <T1, T2> void sendAndForget(Command2<T1, T2, ?> command, T1 arg1, T2 arg2) {
+    sendAndForget(command.apply(arg1, arg2));
+  }
+
+  public final <T1, T2, T3> void sendAndForget(Command3<T1, T2, T3, ?> command, T1 arg1, T2 arg2, T3 arg3) {
+    sendAndForget(command.apply(arg1, arg2, arg3));
+  }
+
+  /**
+   * Creates a pipeline which collects requests until it is flushed.
+   */
+  public Pipeline pipeline() {
+    return new Pipeline();
+  }
+
   public final <T, R> ListenableFuture<R> send(Command1<T, R> command, T arg) {
     return send(command.apply(arg));
   }
@@ -76,4 +145,36 @@ public class RedisClient extends XnioRedisClient<ListenableFuture, SettableFutur
   public final <T, E, R> ListenableFuture<R> send(Command2<T, E[], R> command, T arg1, E... arg2) {
     return send(command.apply(arg1, arg2));
   }
+
+  /**
+   * Requests collected by a pipeline are encoded together and written with a single gathering write when
+   * {@link #flush()} is called. A pipeline can be reused after it is flushed but is not thread-safe.
+   */
+  public final class Pipeline {
+    private final Batch batch = newBatch();
+
+    private Pipeline() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> ListenableFuture<T> send(Request<T> request) {
+      return batch.add(request);
+    }
+
+    /**
+     * Adds the request without a future for its reply. An error reply fails the future returned by {@link #flush()}.
+     */
+    public void sendIgnoringReply(Request<?> request) {
+      batch.addIgnoringReply(request);
+    }
+
+    public int size() {
+      return batch.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    public ListenableFuture<Void> flush() {
+      return batch.flush();
+    }
+  }
 }
@@ -5,6 +5,7 @@ import org.xnio.OptionMap;
 import org.xnio.Options;
 import org.xnio.Xnio;
 import org.xnio.XnioWorker;
+import redradishes.HashedWheelTimer;
 
 import java.io.IOException;
 import java.net.SocketAddress;
@@ -14,15 +15,21 @@ public class RedisClientFactory implements AutoCloseable {
   private final ByteBufferPool byteBufferPool = ByteBufferPool.MEDIUM_DIRECT;
   private final Charset charset;
   private final XnioWorker worker;
+  private final HashedWheelTimer timer;
 
   public RedisClientFactory(Charset charset, int ioThreads) throws IOException {
     Xnio xnio = Xnio.getInstance();
     this.charset = charset;
     worker = xnio.createWorker(OptionMap.create(Options.WORKER_IO_THREADS, ioThreads));
+    timer = new HashedWheelTimer(worker.getIoThread());
   }
 
   public RedisClient connect(SocketAddress address) {
-    return new RedisClient(worker, address, byteBufferPool, charset);
+    return connect(address, OptionMap.EMPTY);
+  }
+
+  public RedisClient connect(SocketAddress address, OptionMap options) {
+    return new RedisClient(worker, address, byteBufferPool, charset, options, timer);
   }
 
   @Override
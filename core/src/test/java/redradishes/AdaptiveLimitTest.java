@@ -0,0 +1,45 @@
+package redradishes;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+public class AdaptiveLimitTest {
+  private static final long RTT = 1_000_000;
+
+  @Test
+  public void growsWhileRoundTripsAreStable() {
+    AdaptiveLimit limit = new AdaptiveLimit();
+    for (int i = 0; i < 10000; i++) {
+      limit.onReply(0, RTT, limit.limit());
+    }
+    assertThat(limit.limit(), greaterThan(AdaptiveLimit.INITIAL_LIMIT));
+  }
+
+  @Test
+  public void doesNotGrowWhenUnderused() {
+    AdaptiveLimit limit = new AdaptiveLimit();
+    for (int i = 0; i < 10000; i++) {
+      limit.onReply(0, RTT, 1);
+    }
+    assertThat(limit.limit(), equalTo(AdaptiveLimit.INITIAL_LIMIT));
+  }
+
+  @Test
+  public void shrinksOncePerRoundTripWhenRoundTripsGrow() {
+    AdaptiveLimit limit = new AdaptiveLimit();
+    limit.onReply(0, RTT, 10);
+    limit.onReply(0, RTT * 10, 10);
+    int decreased = limit.limit();
+    assertThat(decreased, lessThan(AdaptiveLimit.INITIAL_LIMIT));
+    for (int i = 0; i < 9; i++) {
+      limit.onReply(0, RTT * 10, 10);
+    }
+    assertThat(limit.limit(), equalTo(decreased));
+    limit.onReply(0, RTT * 10, 10);
+    assertThat(limit.limit(), lessThan(decreased));
+  }
+}
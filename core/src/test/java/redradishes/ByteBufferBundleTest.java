@@ -2,20 +2,27 @@ package redradishes;
 
 import com.google.common.primitives.Bytes;
 import com.pholser.junit.quickcheck.ForAll;
+import com.pholser.junit.quickcheck.generator.ValuesOf;
 import org.junit.contrib.theories.Theories;
 import org.junit.contrib.theories.Theory;
 import org.junit.contrib.theories.suppliers.TestedOn;
 import org.junit.runner.RunWith;
 import org.xnio.Buffers;
 import org.xnio.ByteBufferPool;
+import redradishes.encoder.FileRegion;
 
 import java.io.IOException;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.GatheringByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 import java.util.function.Consumer;
 
 import static java.lang.Integer.min;
@@ -53,6 +60,62 @@ public class ByteBufferBundleTest {
     assertTrue(byteBufferBundle.isEmpty());
   }
 
+  @Theory
+  public void writesSharedValues(@TestedOn(ints = {10, 8192, 100000}) int length, @ForAll @ValuesOf boolean directPool,
+      @ForAll @ValuesOf boolean directValue, @TestedOn(ints = {1000, 70000}) int readChunk) throws IOException {
+    byte[] value = new byte[length];
+    new Random(length).nextBytes(value);
+    ByteBufferBundle byteBufferBundle =
+        new ByteBufferBundle(directPool ? ByteBufferPool.SMALL_DIRECT : ByteBufferPool.SMALL_HEAP);
+    ByteBufferSink sink = new ByteBufferSink(byteBufferBundle);
+    sink.write((byte) '[');
+    if (directValue) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+      buffer.put(value).flip();
+      sink.write(buffer);
+    } else {
+      sink.write(value);
+    }
+    sink.write((byte) ']');
+
+    List<byte[]> received = new ArrayList<>();
+    while (!byteBufferBundle.isEmpty()) {
+      byteBufferBundle.writeTo((SimpleGatheringByteChannel) (srcs, offset, len) -> read(srcs, offset, len,
+          received::add, min(readChunk, remaining(srcs, offset, len))));
+    }
+
+    assertThat(Bytes.concat(received.stream().toArray(byte[][]::new)),
+        equalTo(Bytes.concat(new byte[]{'['}, value, new byte[]{']'})));
+  }
+
+  @Theory
+  public void transfersFileRegions(@TestedOn(ints = {0, 10, 3000000}) int length,
+      @TestedOn(ints = {1000, 70000}) int readChunk) throws IOException {
+    byte[] content = new byte[length + 20];
+    new Random(length).nextBytes(content);
+    Path file = Files.createTempFile("region", null);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(content));
+      ByteBufferBundle byteBufferBundle = new ByteBufferBundle(ByteBufferPool.SMALL_DIRECT);
+      ByteBufferSink sink = new ByteBufferSink(byteBufferBundle);
+      sink.write((byte) '[');
+      sink.write(FileRegion.of(channel, 10, length));
+      sink.write((byte) ']');
+      sink.write(FileRegion.of(file));
+
+      List<byte[]> received = new ArrayList<>();
+      while (!byteBufferBundle.isEmpty()) {
+        byteBufferBundle.writeTo((SimpleGatheringByteChannel) (srcs, offset, len) -> read(srcs, offset, len,
+            received::add, min(readChunk, remaining(srcs, offset, len))));
+      }
+
+      assertThat(Bytes.concat(received.stream().toArray(byte[][]::new)), equalTo(
+          Bytes.concat(new byte[]{'['}, Arrays.copyOfRange(content, 10, length + 10), new byte[]{']'}, content)));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
   private int remaining(ByteBuffer[] readBuffers, int offset, int length) {
     return Arrays.stream(readBuffers, offset, offset + length).mapToInt(Buffer::remaining).sum();
   }
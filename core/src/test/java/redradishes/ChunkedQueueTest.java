@@ -0,0 +1,72 @@
+package redradishes;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class ChunkedQueueTest {
+  private static final int PRODUCERS = 4;
+  private static final int ELEMENTS = ChunkedQueue.CHUNK_SIZE * 50 + 7;
+
+  @Test
+  public void spscQueueKeepsOrderAcrossChunks() {
+    SpscChunkedQueue<Integer> queue = new SpscChunkedQueue<>();
+    int next = 0;
+    for (int i = 0; i < ELEMENTS; i++) {
+      queue.add(i);
+      if (i % 3 == 0) {
+        assertThat(queue.poll(), equalTo(next++));
+      }
+    }
+    assertThat(queue.size(), equalTo(ELEMENTS - next));
+    while (!queue.isEmpty()) {
+      assertThat(queue.poll(), equalTo(next++));
+    }
+    assertThat(next, equalTo(ELEMENTS));
+    assertThat(queue.poll(), nullValue());
+  }
+
+  @Test
+  public void mpscQueueKeepsOrderOfEachProducer() throws InterruptedException {
+    MpscChunkedQueue<long[]> queue = new MpscChunkedQueue<>();
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> producers = new ArrayList<>();
+    for (int p = 0; p < PRODUCERS; p++) {
+      int producer = p;
+      Thread thread = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        for (int i = 0; i < ELEMENTS; i++) {
+          queue.add(new long[]{producer, i});
+        }
+      });
+      thread.start();
+      producers.add(thread);
+    }
+    start.countDown();
+    long[] expected = new long[PRODUCERS];
+    int received = 0;
+    while (received < PRODUCERS * ELEMENTS) {
+      long[] e = queue.poll();
+      if (e != null) {
+        assertThat(e[1], equalTo(expected[(int) e[0]]++));
+        received++;
+      }
+    }
+    for (Thread producer : producers) {
+      producer.join();
+    }
+    assertTrue(queue.isEmpty());
+    assertThat(queue.poll(), nullValue());
+  }
+}
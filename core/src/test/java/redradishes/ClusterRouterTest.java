@@ -0,0 +1,166 @@
+package redradishes;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.xnio.ByteBufferPool;
+import org.xnio.OptionMap;
+import org.xnio.Xnio;
+import org.xnio.XnioWorker;
+import redradishes.commands.Command;
+import redradishes.commands.Command1;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static redradishes.commands.CommandBuilder.command;
+import static redradishes.decoder.Replies.integerReply;
+import static redradishes.decoder.Replies.simpleStringReply;
+import static redradishes.encoder.Encoders.keyArg;
+
+/**
+ * Routes through a seed server stub which serves the slot map, to node stubs which accept connections but never reply.
+ */
+public class ClusterRouterTest {
+  private static final Command1<CharSequence, Integer> INCR =
+      command("INCR").withArg(keyArg(UTF_8)).returning(integerReply());
+  private static final Command<CharSequence> PING = command("PING").returning(simpleStringReply());
+  // Slot 5061, served by the first node
+  private static final String FIRST_KEY = "bar";
+  // Slot 12182, served by the second node
+  private static final String SECOND_KEY = "foo";
+  private XnioWorker worker;
+  private ServerSocket seedServer;
+  private ServerSocket firstNode;
+  private ServerSocket secondNode;
+  private Socket seed;
+  private ClusterRouter router;
+
+  @Before
+  public void createRouter() throws Exception {
+    worker = Xnio.getInstance().createWorker(OptionMap.EMPTY);
+    seedServer = new ServerSocket(0);
+    firstNode = new ServerSocket(0);
+    secondNode = new ServerSocket(0);
+    router = new ClusterRouter(worker, new InetSocketAddress("127.0.0.1", seedServer.getLocalPort()),
+        ByteBufferPool.MEDIUM_HEAP, UTF_8, OptionMap.EMPTY);
+    seedServer.setSoTimeout(10_000);
+    seed = seedServer.accept();
+    seed.setSoTimeout(10_000);
+    awaitClusterSlots();
+    replySlots(firstNode.getLocalPort(), secondNode.getLocalPort());
+    awaitRoute(INCR.apply(SECOND_KEY), address(secondNode));
+  }
+
+  @After
+  public void closeRouter() throws Exception {
+    router.close();
+    seed.close();
+    seedServer.close();
+    firstNode.close();
+    secondNode.close();
+    worker.shutdownNow();
+  }
+
+  @Test
+  public void routesByFirstKeySlot() {
+    assertThat(router.route(INCR.apply(FIRST_KEY)).address(), equalTo(address(firstNode)));
+    assertThat(router.route(INCR.apply(SECOND_KEY)).address(), equalTo(address(secondNode)));
+    assertThat(router.route(PING, SECOND_KEY).address(), equalTo(address(secondNode)));
+    assertThat(router.route(PING).address(), equalTo(address(seedServer)));
+  }
+
+  @Test
+  public void movesSlotAndReloadsSlotMapOnMovedRedirect() throws Exception {
+    assertTrue(router.redirect(queued(INCR.apply(FIRST_KEY)), redirect("MOVED", secondNode.getLocalPort())));
+    assertThat(router.route(INCR.apply(FIRST_KEY)).address(), equalTo(address(secondNode)));
+    awaitClusterSlots();
+  }
+
+  @Test
+  public void keepsSlotOnAskRedirect() {
+    assertTrue(router.redirect(queued(INCR.apply(FIRST_KEY)), redirect("ASK", secondNode.getLocalPort())));
+    assertThat(router.route(INCR.apply(FIRST_KEY)).address(), equalTo(address(firstNode)));
+  }
+
+  @Test
+  public void reloadsSlotMapWhenNodeConnectionFails() throws Exception {
+    ServerSocket closedNode = new ServerSocket(0);
+    closedNode.close();
+    assertTrue(router.redirect(queued(INCR.apply(FIRST_KEY)), redirect("MOVED", secondNode.getLocalPort())));
+    awaitClusterSlots();
+    replySlots(closedNode.getLocalPort(), secondNode.getLocalPort());
+    // Once the connection to the node has failed, its requests go to the seed until the slot map is reloaded
+    awaitRoute(INCR.apply(FIRST_KEY), address(seedServer));
+    awaitClusterSlots();
+    replySlots(firstNode.getLocalPort(), secondNode.getLocalPort());
+    awaitRoute(INCR.apply(SECOND_KEY), address(secondNode));
+  }
+
+  private QueuedCommand<Integer> queued(Request<Integer> request) {
+    return new QueuedCommand<Integer>(router, request) {
+      @Override
+      void completed(Integer value) {
+      }
+
+      @Override
+      void failed(Throwable e) {
+      }
+
+      @Override
+      void cancelled() {
+      }
+    };
+  }
+
+  private static ClusterRedirectException redirect(String type, int port) {
+    return ClusterRedirectException.parse(type + " " + HashSlots.slot(FIRST_KEY) + " 127.0.0.1:" + port);
+  }
+
+  private static SocketAddress address(ServerSocket server) {
+    return new InetSocketAddress("127.0.0.1", server.getLocalPort());
+  }
+
+  private void awaitRoute(Request<?> request, SocketAddress address) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!router.route(request).address().equals(address) && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertThat(router.route(request).address(), equalTo(address));
+  }
+
+  private void awaitClusterSlots() throws IOException {
+    InputStream in = seed.getInputStream();
+    StringBuilder received = new StringBuilder();
+    while (received.indexOf("SLOTS\r\n") < 0) {
+      int b = in.read();
+      assertTrue(b >= 0);
+      received.append((char) b);
+    }
+  }
+
+  /**
+   * Replies with two slot ranges split in the middle, both served on the loopback address.
+   */
+  private void replySlots(int firstPort, int secondPort) throws IOException {
+    int middle = HashSlots.SLOT_COUNT / 2;
+    OutputStream out = seed.getOutputStream();
+    out.write(("*2\r\n" + range(0, middle - 1, firstPort) + range(middle, HashSlots.SLOT_COUNT - 1, secondPort))
+        .getBytes(UTF_8));
+    out.flush();
+  }
+
+  private static String range(int first, int last, int port) {
+    return "*3\r\n:" + first + "\r\n:" + last + "\r\n*2\r\n$9\r\n127.0.0.1\r\n:" + port + "\r\n";
+  }
+}
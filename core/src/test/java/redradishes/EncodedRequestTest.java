@@ -0,0 +1,166 @@
+package redradishes;
+
+import com.google.common.base.Strings;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+import com.pholser.junit.quickcheck.ForAll;
+import org.junit.Test;
+import org.junit.contrib.theories.Theories;
+import org.junit.contrib.theories.Theory;
+import org.junit.runner.RunWith;
+import redradishes.commands.Command1;
+import redradishes.commands.Command3;
+import redradishes.decoder.parser.ReplyParser;
+import redradishes.encoder.ByteSink;
+import redradishes.encoder.FileRegion;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static redradishes.commands.CommandBuilder.command;
+import static redradishes.decoder.Replies.integerReply;
+import static redradishes.decoder.Replies.simpleStringReply;
+import static redradishes.encoder.Encoders.bytesArg;
+import static redradishes.encoder.Encoders.fileArg;
+import static redradishes.encoder.Encoders.strArg;
+
+@RunWith(Theories.class)
+public class EncodedRequestTest {
+  private static final Command1<CharSequence, CharSequence> ECHO =
+      command("ECHO").withArg(strArg(UTF_8)).returning(simpleStringReply());
+  private static final Command3<CharSequence, FileRegion, byte[], Integer> RPUSH =
+      command("RPUSH").withArg(strArg(UTF_8)).withArg(fileArg()).withArg(bytesArg()).returning(integerReply());
+
+  @Theory
+  public void keepsBytesOfEarlierRequests(@ForAll String[] values) {
+    List<Request<CharSequence>> encoded = new ArrayList<>();
+    for (String value : values) {
+      encoded.add(EncodedRequest.encode(ECHO.apply(value)));
+    }
+    for (int i = 0; i < values.length; i++) {
+      assertEncodedEqually(encoded.get(i), ECHO.apply(values[i]));
+    }
+  }
+
+  @Test
+  public void encodesRequestLargerThanSlab() {
+    String large = Strings.repeat("é", 100000);
+    Request<CharSequence> before = EncodedRequest.encode(ECHO.apply("before"));
+    Request<CharSequence> encoded = EncodedRequest.encode(ECHO.apply(large));
+    Request<CharSequence> after = EncodedRequest.encode(ECHO.apply("after"));
+    assertEncodedEqually(before, ECHO.apply("before"));
+    assertEncodedEqually(encoded, ECHO.apply(large));
+    assertEncodedEqually(after, ECHO.apply("after"));
+    assertThat(encoded.length(), equalTo((long) serialize(ECHO.apply(large), part -> {}).length));
+  }
+
+  @Test
+  public void keepsFileRegionsAndLargeValuesByReference() throws Exception {
+    byte[] large = new byte[ByteSink.MIN_SHARED_LENGTH];
+    Arrays.fill(large, (byte) 'v');
+    Path file = Files.createTempFile("value", null);
+    try {
+      Files.write(file, "file".getBytes(UTF_8));
+      FileRegion region = FileRegion.of(file);
+      Request<Integer> request = RPUSH.apply("list", region, large);
+      Request<Integer> encoded = EncodedRequest.encode(request);
+      List<Object> shared = new ArrayList<>();
+      byte[] serialized = serialize(encoded, shared::add);
+      assertArrayEquals(serialize(request, part -> {}), serialized);
+      assertThat(shared, contains(sameInstance(region), sameInstance(large)));
+      assertThat(encoded.length(), equalTo((long) serialized.length));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void discardsPartsOfRequestWhichCannotBeEncoded() {
+    RuntimeException encodingFailure = new RuntimeException();
+    Request<CharSequence> unencodable = new Request<CharSequence>() {
+      @Override
+      public void writeTo(ByteSink sink) {
+        sink.write(new byte[ByteSink.MIN_SHARED_LENGTH]);
+        sink.write((byte) '*');
+        throw encodingFailure;
+      }
+
+      @Override
+      public ReplyParser<? extends CharSequence> parser() {
+        return simpleStringReply();
+      }
+    };
+    Request<CharSequence> before = EncodedRequest.encode(ECHO.apply("before"));
+    try {
+      EncodedRequest.encode(unencodable);
+      fail();
+    } catch (RuntimeException e) {
+      assertThat(e, sameInstance(encodingFailure));
+    }
+    Request<CharSequence> after = EncodedRequest.encode(ECHO.apply("after"));
+    assertEncodedEqually(before, ECHO.apply("before"));
+    assertEncodedEqually(after, ECHO.apply("after"));
+  }
+
+  private static void assertEncodedEqually(Request<?> encoded, Request<?> request) {
+    assertArrayEquals(serialize(request, part -> {}), serialize(encoded, part -> {}));
+  }
+
+  /**
+   * @param shared receives the file regions and the arrays of at least {@link ByteSink#MIN_SHARED_LENGTH} bytes
+   */
+  private static byte[] serialize(Request<?> request, Consumer<Object> shared) {
+    ByteArrayDataOutput out = ByteStreams.newDataOutput();
+    request.writeTo(new ByteSink() {
+      @Override
+      public void write(byte b) {
+        out.write(b);
+      }
+
+      @Override
+      public void write(CharSequence s, CharsetEncoder charsetEncoder) {
+        try {
+          ByteBuffer byteBuffer = charsetEncoder.encode(CharBuffer.wrap(s));
+          out.write(byteBuffer.array(), 0, byteBuffer.remaining());
+        } catch (CharacterCodingException e) {
+          throw new UncheckedCharacterCodingException(e);
+        }
+      }
+
+      @Override
+      public void write(byte[] src) {
+        out.write(src);
+      }
+
+      @Override
+      public void write(byte[] src, int offset, int length) {
+        if (length >= MIN_SHARED_LENGTH) {
+          shared.accept(src);
+        }
+        out.write(src, offset, length);
+      }
+
+      @Override
+      public void write(FileRegion region) {
+        shared.accept(region);
+        ByteSink.super.write(region);
+      }
+    });
+    return out.toByteArray();
+  }
+}
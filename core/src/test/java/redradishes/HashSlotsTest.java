@@ -0,0 +1,34 @@
+package redradishes;
+
+import org.junit.Test;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class HashSlotsTest {
+  @Test
+  public void computesCrc16() {
+    byte[] bytes = "123456789".getBytes(US_ASCII);
+    assertThat(HashSlots.crc16(bytes, 0, bytes.length), equalTo(0x31C3));
+  }
+
+  @Test
+  public void computesSlot() {
+    assertThat(HashSlots.slot("foo"), equalTo(12182));
+    assertThat(HashSlots.slot("bar"), equalTo(5061));
+    assertThat(HashSlots.slot(""), equalTo(0));
+  }
+
+  @Test
+  public void usesHashTag() {
+    assertThat(HashSlots.slot("{user1000}.following"), equalTo(HashSlots.slot("user1000")));
+    assertThat(HashSlots.slot("foo{bar}{zap}"), equalTo(HashSlots.slot("bar")));
+  }
+
+  @Test
+  public void ignoresEmptyHashTag() {
+    byte[] key = "foo{}{bar}".getBytes(US_ASCII);
+    assertThat(HashSlots.slot(key), equalTo(HashSlots.crc16(key, 0, key.length) & 16383));
+  }
+}
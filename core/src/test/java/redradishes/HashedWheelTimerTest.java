@@ -0,0 +1,78 @@
+package redradishes;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.xnio.OptionMap;
+import org.xnio.Xnio;
+import org.xnio.XnioWorker;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HashedWheelTimerTest {
+  private XnioWorker worker;
+  private HashedWheelTimer timer;
+
+  @Before
+  public void createTimer() throws Exception {
+    worker = Xnio.getInstance().createWorker(OptionMap.EMPTY);
+    timer = new HashedWheelTimer(worker.getIoThread());
+  }
+
+  @After
+  public void shutdown() {
+    worker.shutdown();
+  }
+
+  @Test
+  public void expiresAfterDelay() throws Exception {
+    CountDownLatch expired = new CountDownLatch(1);
+    long start = System.nanoTime();
+    timer.schedule(timeout(expired), TimeUnit.MILLISECONDS.toNanos(50));
+    assertTrue(expired.await(5, TimeUnit.SECONDS));
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+  }
+
+  @Test
+  public void doesNotExpireFinished() throws Exception {
+    CountDownLatch finishedExpired = new CountDownLatch(1);
+    CountDownLatch expired = new CountDownLatch(1);
+    HashedWheelTimer.Timeout finished = timeout(finishedExpired);
+    timer.schedule(finished, TimeUnit.MILLISECONDS.toNanos(30));
+    timer.schedule(timeout(expired), TimeUnit.MILLISECONDS.toNanos(60));
+    assertTrue(finished.finish());
+    assertTrue(expired.await(5, TimeUnit.SECONDS));
+    assertFalse(finishedExpired.await(0, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void cannotFinishExpired() throws Exception {
+    CountDownLatch expired = new CountDownLatch(1);
+    HashedWheelTimer.Timeout timeout = timeout(expired);
+    timer.schedule(timeout, 1);
+    assertTrue(expired.await(5, TimeUnit.SECONDS));
+    assertFalse(timeout.finish());
+  }
+
+  @Test
+  public void expiresManyTimeouts() throws Exception {
+    CountDownLatch expired = new CountDownLatch(10000);
+    for (int i = 0; i < 10000; i++) {
+      timer.schedule(timeout(expired), TimeUnit.MILLISECONDS.toNanos(i % 200));
+    }
+    assertTrue(expired.await(5, TimeUnit.SECONDS));
+  }
+
+  private static HashedWheelTimer.Timeout timeout(CountDownLatch expired) {
+    return new HashedWheelTimer.Timeout() {
+      @Override
+      void expired() {
+        expired.countDown();
+      }
+    };
+  }
+}
@@ -0,0 +1,75 @@
+package redradishes;
+
+import org.junit.After;
+import org.junit.Before;
+import org.xnio.OptionMap;
+import redradishes.commands.Command;
+import redradishes.commands.Command1;
+import redradishes.commands.Command2;
+import redradishes.java8.RedisClient;
+import redradishes.java8.RedisClientFactory;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static redradishes.commands.CommandBuilder.command;
+import static redradishes.decoder.Replies.integerReply;
+import static redradishes.decoder.Replies.objectReply;
+import static redradishes.decoder.Replies.simpleStringReply;
+import static redradishes.encoder.Encoders.strArg;
+
+/**
+ * Connects clients with the options under test to the Redis server on localhost, whose database is flushed before each
+ * test.
+ */
+public abstract class LocalRedisTest {
+  static final Command1<CharSequence, Integer> INCR =
+      command("INCR").withArg(strArg(UTF_8)).returning(integerReply());
+  static final String KEY = "COUNTER";
+  private static final Command<CharSequence> FLUSHDB = command("FLUSHDB").returning(simpleStringReply());
+  private static final Command1<CharSequence, Object> BLPOP =
+      command("BLPOP").withArg(strArg(UTF_8)).withOption("0").returning(objectReply());
+  private static final Command2<CharSequence, CharSequence, Integer> RPUSH =
+      command("RPUSH").withArg(strArg(UTF_8)).withArg(strArg(UTF_8)).returning(integerReply());
+  private static final String BLOCKING_LIST = "BLOCKING";
+  private RedisClientFactory factory;
+  private RedisClient admin;
+
+  @Before
+  public void createFactory() throws Exception {
+    factory = new RedisClientFactory(UTF_8, 1);
+    admin = connect(OptionMap.EMPTY);
+    admin.send(FLUSHDB).join();
+  }
+
+  @After
+  public void closeFactory() throws Exception {
+    admin.close();
+    factory.close();
+  }
+
+  RedisClient connect(OptionMap options) {
+    return factory.connect(new InetSocketAddress("localhost", 6379), options);
+  }
+
+  /**
+   * Sends a command which the server does not reply to until {@link #unblock()} is called. The server does not read
+   * the commands sent after it on the same connection until then either.
+   */
+  static CompletableFuture<Object> block(RedisClient client) {
+    return client.send(BLPOP, BLOCKING_LIST);
+  }
+
+  /**
+   * Like {@link #block(RedisClient)}, but the command times out after the given time.
+   */
+  static CompletableFuture<Object> block(RedisClient client, long timeout, TimeUnit unit) {
+    return client.send(BLPOP.apply(BLOCKING_LIST), timeout, unit);
+  }
+
+  void unblock() {
+    admin.send(RPUSH, BLOCKING_LIST, "1").join();
+  }
+}
@@ -0,0 +1,152 @@
+package redradishes;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PendingLimitTest {
+  private final List<Integer> dispatched = new ArrayList<>();
+  private final List<Integer> cancelled = new ArrayList<>();
+
+  @Test
+  public void failsAboveCommandLimit() throws Exception {
+    PendingLimit limit = new PendingLimit(2, Long.MAX_VALUE, BackpressurePolicy.FAIL);
+    limit.acquire(command(1, 10));
+    limit.acquire(command(2, 10));
+    try {
+      limit.acquire(command(3, 10));
+      fail();
+    } catch (TooManyPendingCommandsException expected) {
+    }
+    limit.release(10);
+    limit.acquire(command(4, 10));
+    assertThat(dispatched, contains(1, 2, 4));
+    assertThat(limit.rejected(), equalTo(1L));
+    assertThat(limit.commands(), equalTo(2));
+    assertThat(limit.bytes(), equalTo(20L));
+  }
+
+  @Test
+  public void failsAboveByteLimit() throws Exception {
+    PendingLimit limit = new PendingLimit(Integer.MAX_VALUE, 100, BackpressurePolicy.FAIL);
+    limit.acquire(command(1, 1000));
+    try {
+      limit.acquire(command(2, 1));
+      fail();
+    } catch (TooManyPendingCommandsException expected) {
+    }
+    limit.release(1000);
+    limit.acquire(command(3, 60));
+    limit.acquire(command(4, 40));
+    assertThat(dispatched, contains(1, 3, 4));
+    assertThat(limit.bytes(), equalTo(100L));
+  }
+
+  @Test
+  public void countsEachCommandOfBatch() throws Exception {
+    PendingLimit limit = new PendingLimit(3, Long.MAX_VALUE, BackpressurePolicy.FAIL);
+    limit.acquire(command(1, 10));
+    try {
+      limit.acquire(batch(2, 3, 30));
+      fail();
+    } catch (TooManyPendingCommandsException expected) {
+    }
+    limit.release(10);
+    // Admitted alone even though it is larger than the limit
+    limit.acquire(batch(3, 5, 50));
+    assertThat(limit.commands(), equalTo(5));
+    limit.release(5, 50);
+    assertThat(dispatched, contains(1, 3));
+    assertThat(limit.commands(), equalTo(0));
+    assertThat(limit.bytes(), equalTo(0L));
+  }
+
+  @Test
+  public void defersUntilReleased() throws Exception {
+    PendingLimit limit = new PendingLimit(1, Long.MAX_VALUE, BackpressurePolicy.DEFER);
+    limit.acquire(command(1, 10));
+    limit.acquire(command(2, 10));
+    limit.acquire(command(3, 10));
+    assertThat(dispatched, contains(1));
+    assertThat(limit.deferred(), equalTo(2));
+    limit.release(10);
+    assertThat(dispatched, contains(1, 2));
+    limit.release(10);
+    assertThat(dispatched, contains(1, 2, 3));
+    assertThat(limit.deferred(), equalTo(0));
+    assertThat(limit.rejected(), equalTo(0L));
+  }
+
+  @Test
+  public void cancelsDeferredOnClose() throws Exception {
+    PendingLimit limit = new PendingLimit(1, Long.MAX_VALUE, BackpressurePolicy.DEFER);
+    limit.acquire(command(1, 10));
+    limit.acquire(command(2, 10));
+    limit.close();
+    assertThat(cancelled, contains(2));
+    limit.release(10);
+    assertThat(dispatched, contains(1));
+    assertThat(limit.commands(), equalTo(0));
+  }
+
+  @Test
+  public void blocksUntilReleased() throws Exception {
+    PendingLimit limit = new PendingLimit(1, Long.MAX_VALUE, BackpressurePolicy.BLOCK);
+    limit.acquire(command(1, 10));
+    CountDownLatch acquired = new CountDownLatch(1);
+    Thread thread = new Thread(() -> {
+      try {
+        limit.acquire(command(2, 10));
+        acquired.countDown();
+      } catch (InterruptedException ignored) {
+      }
+    });
+    thread.start();
+    assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+    limit.release(10);
+    assertTrue(acquired.await(10, TimeUnit.SECONDS));
+    thread.join();
+    assertThat(cancelled, empty());
+  }
+
+  private PendingLimit.Deferred command(int id, long length) {
+    return batch(id, 1, length);
+  }
+
+  private PendingLimit.Deferred batch(int id, int commands, long length) {
+    return new PendingLimit.Deferred() {
+      @Override
+      public int commands() {
+        return commands;
+      }
+
+      @Override
+      public long length() {
+        return length;
+      }
+
+      @Override
+      public void dispatch() {
+        synchronized (dispatched) {
+          dispatched.add(id);
+        }
+      }
+
+      @Override
+      public void cancel() {
+        cancelled.add(id);
+      }
+    };
+  }
+}
@@ -0,0 +1,120 @@
+package redradishes;
+
+import org.junit.Test;
+import org.xnio.OptionMap;
+import redradishes.java8.RedisClient;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class RedisClientConnectionTest extends LocalRedisTest {
+  @Test
+  public void holdsCommandsAboveAdaptivePipelineLimit() throws Exception {
+    try (RedisClient client = connect(OptionMap.create(RedisClientOptions.ADAPTIVE_PIPELINE_LIMIT, true))) {
+      // No replies arrive while the server is blocked, so the commands in flight reach the initial limit
+      CompletableFuture<Object> blocked = block(client);
+      List<CompletableFuture<Integer>> futures = IntStream.range(0, AdaptiveLimit.INITIAL_LIMIT + 9)
+          .mapToObj(i -> client.send(INCR, KEY)).collect(Collectors.toList());
+      awaitWritten(client, AdaptiveLimit.INITIAL_LIMIT);
+      assertThat(client.stats().writtenCommands(), equalTo((long) AdaptiveLimit.INITIAL_LIMIT));
+      assertThat(client.stats().queuedCommands(), equalTo(10));
+      unblock();
+      blocked.join();
+      futures.forEach(CompletableFuture::join);
+      assertThat(client.stats().writtenCommands(), equalTo(AdaptiveLimit.INITIAL_LIMIT + 10L));
+      assertThat(client.stats().queuedCommands(), equalTo(0));
+    }
+  }
+
+  @Test
+  public void shedsCommandsExpiredInQueue() throws Exception {
+    try (RedisClient client = connect(OptionMap.create(RedisClientOptions.ADAPTIVE_PIPELINE_LIMIT, true))) {
+      // The commands in flight reach the initial limit, so the following ones wait in the queue until they expire
+      CompletableFuture<Object> blocked = block(client);
+      List<CompletableFuture<Integer>> inFlight = IntStream.range(0, AdaptiveLimit.INITIAL_LIMIT - 1)
+          .mapToObj(i -> client.send(INCR, KEY)).collect(Collectors.toList());
+      List<CompletableFuture<Integer>> expiring = IntStream.range(0, 10)
+          .mapToObj(i -> client.send(INCR.apply(KEY), 20, TimeUnit.MILLISECONDS)).collect(Collectors.toList());
+      for (CompletableFuture<Integer> future : expiring) {
+        try {
+          future.join();
+          fail();
+        } catch (CompletionException e) {
+          assertThat(e.getCause(), instanceOf(TimeoutException.class));
+        }
+      }
+      unblock();
+      blocked.join();
+      inFlight.forEach(CompletableFuture::join);
+      assertThat(client.send(INCR, KEY).join(), equalTo(AdaptiveLimit.INITIAL_LIMIT));
+      assertThat(client.stats().shedCommands(), equalTo(10L));
+      assertThat(client.stats().writtenCommands(), equalTo(AdaptiveLimit.INITIAL_LIMIT + 1L));
+    }
+  }
+
+  @Test
+  public void coalescesWritesWithinDelay() {
+    try (RedisClient client = connect(OptionMap.create(RedisClientOptions.WRITE_COALESCING_DELAY, 100_000))) {
+      List<CompletableFuture<Integer>> futures =
+          IntStream.range(0, 10).mapToObj(i -> client.send(INCR, KEY)).collect(Collectors.toList());
+      futures.forEach(CompletableFuture::join);
+      assertThat(client.stats().writtenCommands(), equalTo(10L));
+      assertThat(client.stats().commandsPerWrite(), greaterThan(1.0));
+    }
+  }
+
+  @Test
+  public void writesCommandsDelayedForLessThanTimerResolution() {
+    try (RedisClient client = connect(OptionMap.create(RedisClientOptions.WRITE_COALESCING_DELAY, 100))) {
+      List<CompletableFuture<Integer>> futures =
+          IntStream.range(0, 10).mapToObj(i -> client.send(INCR, KEY)).collect(Collectors.toList());
+      futures.forEach(CompletableFuture::join);
+      assertThat(client.stats().writtenCommands(), equalTo(10L));
+    }
+  }
+
+  @Test
+  public void writesOnceEnoughCommandsAreCoalesced() throws Exception {
+    try (RedisClient client = connect(OptionMap.builder().set(RedisClientOptions.WRITE_COALESCING_DELAY, 10_000_000)
+        .set(RedisClientOptions.WRITE_COALESCING_COMMANDS, 10).getMap())) {
+      List<CompletableFuture<Integer>> futures =
+          IntStream.range(0, 10).mapToObj(i -> client.send(INCR, KEY)).collect(Collectors.toList());
+      for (CompletableFuture<Integer> future : futures) {
+        future.get(5, TimeUnit.SECONDS);
+      }
+      assertThat(client.stats().writes(), equalTo(1L));
+    }
+  }
+
+  @Test
+  public void writesInlineWhenIdle() {
+    try (RedisClient client = connect(OptionMap.create(RedisClientOptions.INLINE_WRITES, true))) {
+      // The first command may be queued until the connection is established
+      assertThat(client.send(INCR, KEY).join(), equalTo(1));
+      long inlineWrites = client.stats().inlineWrites();
+      for (int i = 2; i <= 11; i++) {
+        assertThat(client.send(INCR, KEY).join(), equalTo(i));
+      }
+      assertThat(client.stats().inlineWrites() - inlineWrites, equalTo(10L));
+      assertThat(client.stats().writtenCommands(), equalTo(11L));
+    }
+  }
+
+  private static void awaitWritten(RedisClient client, long commands) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (client.stats().writtenCommands() < commands && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package redradishes;
+
+import org.junit.Test;
+import org.xnio.OptionMap;
+import redradishes.java8.RedisClient;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class XnioRedisClientTest extends LocalRedisTest {
+  @Test
+  public void defersCommandsAbovePendingLimit() {
+    try (RedisClient client = connect(OptionMap.builder().set(RedisClientOptions.MAX_PENDING_COMMANDS, 1)
+        .set(RedisClientOptions.BACKPRESSURE, BackpressurePolicy.DEFER).getMap())) {
+      CompletableFuture<Object> blocked = block(client);
+      List<CompletableFuture<Integer>> deferred =
+          IntStream.range(0, 3).mapToObj(i -> client.send(INCR, KEY)).collect(Collectors.toList());
+      assertThat(client.stats().deferredCommands(), equalTo(3));
+      assertThat(client.stats().pendingCommands(), equalTo(4));
+      unblock();
+      blocked.join();
+      assertThat(deferred.stream().map(CompletableFuture::join).collect(Collectors.toList()), contains(1, 2, 3));
+      assertThat(client.stats().deferredCommands(), equalTo(0));
+      assertThat(client.stats().pendingCommands(), equalTo(0));
+      assertThat(client.stats().rejectedCommands(), equalTo(0L));
+    }
+  }
+
+  @Test
+  public void releasesPendingCommandWhichTimedOutAfterItWasWritten() {
+    try (RedisClient client = connect(OptionMap.create(RedisClientOptions.MAX_PENDING_COMMANDS, 10))) {
+      CompletableFuture<Object> blocked = block(client, 20, TimeUnit.MILLISECONDS);
+      try {
+        blocked.join();
+        fail();
+      } catch (CompletionException e) {
+        assertThat(e.getCause(), instanceOf(TimeoutException.class));
+      }
+      unblock();
+      // The late reply to the blocked command is skipped before this one is read
+      assertThat(client.send(INCR, KEY).join(), equalTo(1));
+      assertThat(client.stats().pendingCommands(), equalTo(0));
+    }
+  }
+
+  @Test
+  public void releasesPendingCommandCancelledInQueueOnce() {
+    try (RedisClient client = connect(OptionMap.builder().set(RedisClientOptions.MAX_PENDING_COMMANDS, 100)
+        .set(RedisClientOptions.ADAPTIVE_PIPELINE_LIMIT, true).getMap())) {
+      // The commands in flight reach the initial limit, so the next one stays queued until the server is unblocked
+      CompletableFuture<Object> blocked = block(client);
+      List<CompletableFuture<Integer>> inFlight = IntStream.range(0, AdaptiveLimit.INITIAL_LIMIT - 1)
+          .mapToObj(i -> client.send(INCR, KEY)).collect(Collectors.toList());
+      assertTrue(client.send(INCR, KEY).cancel(false));
+      unblock();
+      blocked.join();
+      inFlight.forEach(CompletableFuture::join);
+      assertThat(client.send(INCR, KEY).join(), equalTo(AdaptiveLimit.INITIAL_LIMIT));
+      assertThat(client.stats().shedCommands(), equalTo(1L));
+      assertThat(client.stats().pendingCommands(), equalTo(0));
+    }
+  }
+
+  @Test
+  public void flushesPipelineWhoseRequestExpiredBeforeFlush() {
+    try (RedisClient client = connect(OptionMap.builder().set(RedisClientOptions.MAX_PENDING_COMMANDS, 10)
+        .set(RedisClientOptions.COMMAND_TIMEOUT, 20).getMap())) {
+      RedisClient.Pipeline pipeline = client.pipeline();
+      CompletableFuture<Integer> expired = pipeline.send(INCR.apply(KEY));
+      try {
+        expired.join();
+        fail();
+      } catch (CompletionException e) {
+        assertThat(e.getCause(), instanceOf(TimeoutException.class));
+      }
+      CompletableFuture<Integer> incr = pipeline.send(INCR.apply(KEY));
+      pipeline.flush().join();
+      assertThat(incr.join(), equalTo(2));
+      assertThat(client.stats().pendingCommands(), equalTo(0));
+    }
+  }
+
+  @Test
+  public void completesInlineByDefault() {
+    try (RedisClient client = connect(OptionMap.EMPTY)) {
+      List<CompletableFuture<Integer>> futures =
+          IntStream.range(0, 10).mapToObj(i -> client.send(INCR, KEY)).collect(Collectors.toList());
+      futures.forEach(CompletableFuture::join);
+      assertThat(client.stats().inlineCompletions(), equalTo(10L));
+      assertThat(client.stats().inlineCompletionNanos(),
+          greaterThanOrEqualTo(client.stats().maxInlineCompletionNanos()));
+    }
+  }
+
+  @Test
+  public void completesEachCommandInExecutorTask() {
+    AtomicInteger tasks = new AtomicInteger();
+    OptionMap options = OptionMap.builder().set(RedisClientOptions.COMPLETION, CompletionStrategy.EXECUTOR)
+        .set(RedisClientOptions.COMPLETION_EXECUTOR, countingExecutor(tasks)).getMap();
+    try (RedisClient client = connect(options)) {
+      List<CompletableFuture<Integer>> futures =
+          IntStream.range(0, 10).mapToObj(i -> client.send(INCR, KEY)).collect(Collectors.toList());
+      futures.forEach(CompletableFuture::join);
+      assertThat(tasks.get(), equalTo(10));
+      assertThat(client.stats().inlineCompletions(), equalTo(0L));
+    }
+  }
+
+  @Test
+  public void completesRepliesReadTogetherInOneExecutorTask() {
+    AtomicInteger tasks = new AtomicInteger();
+    OptionMap options = OptionMap.builder().set(RedisClientOptions.COMPLETION, CompletionStrategy.BATCHED)
+        .set(RedisClientOptions.COMPLETION_EXECUTOR, countingExecutor(tasks)).getMap();
+    try (RedisClient client = connect(options)) {
+      // The server replies to all commands at once when it is unblocked
+      CompletableFuture<Object> blocked = block(client);
+      List<CompletableFuture<Integer>> futures =
+          IntStream.range(0, 10).mapToObj(i -> client.send(INCR, KEY)).collect(Collectors.toList());
+      unblock();
+      blocked.join();
+      futures.forEach(CompletableFuture::join);
+      assertThat(tasks.get(), lessThan(11));
+      assertThat(client.stats().inlineCompletions(), equalTo(0L));
+    }
+  }
+
+  private static Executor countingExecutor(AtomicInteger tasks) {
+    return task -> {
+      tasks.incrementAndGet();
+      task.run();
+    };
+  }
+}
@@ -14,8 +14,11 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.util.function.Function;
@@ -26,15 +29,22 @@ import static java.nio.charset.StandardCharsets.UTF_16BE;
 import static java.nio.charset.StandardCharsets.UTF_16LE;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeThat;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static redradishes.decoder.BulkStringBuilders._long;
 import static redradishes.decoder.BulkStringBuilders.byteArray;
+import static redradishes.decoder.BulkStringBuilders.channel;
 import static redradishes.decoder.BulkStringBuilders.charSequence;
 import static redradishes.decoder.BulkStringBuilders.integer;
+import static redradishes.decoder.BulkStringBuilders.outputStream;
 import static redradishes.decoder.BulkStringBuilders.string;
 import static redradishes.decoder.Replies.bulkStringReply;
 import static redradishes.decoder.parser.TestUtil.assertNoFailure;
+import static redradishes.decoder.parser.TestUtil.assertNoResult;
 import static redradishes.decoder.parser.TestUtil.encodeBulkString;
 import static redradishes.decoder.parser.TestUtil.parseReply;
 import static redradishes.hamcrest.HasSameContentAs.hasSameContentAs;
@@ -106,6 +116,30 @@ public class BulkStringBuildersTest {
     verifyZeroInteractions(charsetDecoder);
   }
 
+  @Theory
+  public void streamsToOutputStream(@ForAll byte[] value,
+      @TestedOn(ints = {1, 2, 3, 5, 10, 100, 1000}) int bufferSize) {
+    ByteBuffer src = ByteBuffer.wrap(encodeBulkString(value));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertThat(parseReply(src, bufferSize, bulkStringReply(outputStream(out)), Function.identity(), assertNoFailure(),
+        charsetDecoder), equalTo((long) value.length));
+    assertThat(out.toByteArray(), equalTo(value));
+    verifyZeroInteractions(charsetDecoder);
+  }
+
+  @Theory
+  public void failsIfChannelFails(@ForAll byte[] value,
+      @TestedOn(ints = {1, 2, 3, 5, 10, 100, 1000}) int bufferSize) {
+    assumeThat(value.length, greaterThan(0));
+    ByteBuffer src = ByteBuffer.wrap(encodeBulkString(value));
+    IOException exception = new IOException();
+    WritableByteChannel channel = mock(WritableByteChannel.class, invocation -> {
+      throw exception;
+    });
+    assertThat(parseReply(src, bufferSize, bulkStringReply(channel(channel)), assertNoResult(), e -> e,
+        charsetDecoder), sameInstance(exception));
+  }
+
   @Theory
   public void allocatesCharBufferOfTheRightSize(@ForAll @InRange(minInt = 0, maxInt = 100_000_000) int length) {
     CharBuffer charBuffer = (CharBuffer) charSequence().create(length, UTF_8.newDecoder());
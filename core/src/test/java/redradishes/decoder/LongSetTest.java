@@ -0,0 +1,40 @@
+package redradishes.decoder;
+
+import com.pholser.junit.quickcheck.ForAll;
+import com.pholser.junit.quickcheck.generator.InRange;
+import org.junit.contrib.theories.Theories;
+import org.junit.contrib.theories.Theory;
+import org.junit.contrib.theories.suppliers.TestedOn;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.arrayContainingInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+@RunWith(Theories.class)
+public class LongSetTest {
+  @Theory
+  public void behavesLikeHashSet(@ForAll(sampleSize = 50) long[] values,
+      @TestedOn(ints = {0, 1, 1000}) int expectedSize,
+      @ForAll(sampleSize = 5) @InRange(minLong = -3, maxLong = 3) long small) {
+    LongSet set = new LongSet(expectedSize);
+    Set<Long> expected = new HashSet<>();
+    long[] added = Arrays.copyOf(values, values.length + 2);
+    added[values.length] = small;
+    added[values.length + 1] = small;
+    for (long value : added) {
+      assertThat(set.add(value), equalTo(expected.add(value)));
+    }
+    assertThat(set.size(), equalTo(expected.size()));
+    for (long value : added) {
+      assertThat(set.contains(value), equalTo(true));
+      assertThat(set.contains(~value), equalTo(expected.contains(~value)));
+    }
+    assertThat(Arrays.stream(set.toArray()).boxed().toArray(Long[]::new),
+        arrayContainingInAnyOrder(expected.toArray(new Long[expected.size()])));
+  }
+}
@@ -3,6 +3,7 @@ package redradishes.decoder;
 import com.pholser.junit.quickcheck.ForAll;
 import com.pholser.junit.quickcheck.From;
 import com.pholser.junit.quickcheck.generator.InRange;
+import com.pholser.junit.quickcheck.generator.ValuesOf;
 import com.pholser.junit.quickcheck.generator.java.lang.Encoded;
 import org.junit.Rule;
 import org.junit.contrib.theories.Theories;
@@ -12,33 +13,52 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
+import redradishes.ClusterRedirectException;
 import redradishes.RedisException;
 import redradishes.ScanResult;
 import redradishes.decoder.parser.ReplyParser;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.CharsetDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.US_ASCII;
 import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeThat;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static redradishes.decoder.ArrayBuilders.array;
+import static redradishes.decoder.PrimitiveArrayBuilders.doubleArray;
+import static redradishes.decoder.PrimitiveArrayBuilders.intArray;
+import static redradishes.decoder.PrimitiveArrayBuilders.longArray;
+import static redradishes.decoder.PrimitiveArrayBuilders.longSet;
 import static redradishes.decoder.Replies.arrayReply;
 import static redradishes.decoder.Replies.bulkStringReply;
 import static redradishes.decoder.Replies.integerReply;
 import static redradishes.decoder.Replies.longReply;
+import static redradishes.decoder.Replies.objectReply;
 import static redradishes.decoder.Replies.scanReply;
 import static redradishes.decoder.Replies.simpleStringReply;
+import static redradishes.decoder.Replies.statusReply;
+import static redradishes.decoder.Replies.streamingArrayReply;
 import static redradishes.decoder.parser.TestUtil.assertNoFailure;
 import static redradishes.decoder.parser.TestUtil.assertNoResult;
 import static redradishes.decoder.parser.TestUtil.encodeArray;
@@ -162,6 +182,27 @@ public class RepliesTest {
     verifyZeroInteractions(charsetDecoder);
   }
 
+  @Theory
+  public void parsesCommonSimpleStringReplyAsSharedString(@ForAll @ValuesOf Status status,
+      @TestedOn(ints = {1, 2, 3, 5, 100}) int bufferSize) {
+    ByteBuffer src = ByteBuffer.wrap(encodeSimpleString(status.name()));
+    assertThat(parseReply(src, bufferSize, simpleStringReply(), Function.identity(), assertNoFailure(), charsetDecoder),
+        sameInstance(status.name()));
+  }
+
+  @Theory
+  public void parsesStatusReply(@ForAll @ValuesOf Status status, @TestedOn(ints = {1, 2, 3, 5, 100}) int bufferSize) {
+    ByteBuffer src = ByteBuffer.wrap(encodeSimpleString(status.name()));
+    assertThat(parseReply(src, bufferSize, statusReply(), Function.identity(), assertNoFailure(), charsetDecoder),
+        equalTo(status));
+  }
+
+  @Theory
+  public void failsToParseUnknownStatusReply(@TestedOn(ints = {1, 2, 3, 5, 100}) int bufferSize) {
+    ByteBuffer src = ByteBuffer.wrap(encodeSimpleString("Background saving started"));
+    failsToParseReply(src, bufferSize, statusReply(), "Unexpected status reply: Background saving started");
+  }
+
   @Theory
   public void parsesNullStringReply(@TestedOn(ints = {1, 2, 3, 5, 100}) int bufferSize) {
     ByteBuffer src = ByteBuffer.wrap(encodeNilBulkString());
@@ -267,6 +308,104 @@ public class RepliesTest {
     verifyZeroInteractions(charsetDecoder);
   }
 
+  @Theory
+  public void parsesLongArrayReply(@ForAll(sampleSize = 40) long[] nums,
+      @TestedOn(ints = {1, 3, 5, 10, 100, 1000}) int bufferSize) {
+    ByteBuffer src = ByteBuffer.wrap(encodeArray(encodeNumbers(Arrays.stream(nums).mapToObj(Long::toString))));
+    assertThat(parseReply(src, bufferSize, arrayReply(longArray()), Function.identity(), assertNoFailure(),
+        charsetDecoder), equalTo(nums));
+    verifyZeroInteractions(charsetDecoder);
+  }
+
+  @Theory
+  public void parsesIntArrayReply(@ForAll(sampleSize = 40) int[] nums,
+      @TestedOn(ints = {1, 3, 5, 10, 100, 1000}) int bufferSize) {
+    ByteBuffer src = ByteBuffer.wrap(encodeArray(encodeNumbers(Arrays.stream(nums).mapToObj(Integer::toString))));
+    assertThat(parseReply(src, bufferSize, arrayReply(intArray()), Function.identity(), assertNoFailure(),
+        charsetDecoder), equalTo(nums));
+  }
+
+  @Theory
+  public void parsesDoubleArrayReply(@ForAll(sampleSize = 20) double[] nums, @ForAll @ValuesOf boolean shortest,
+      @TestedOn(ints = {1, 3, 5, 10, 100, 1000}) int bufferSize) {
+    Stream<String> texts = Arrays.stream(nums).mapToObj(
+        num -> (shortest ? Double.toString(num) : format(Locale.ROOT, "%.17g", num)).replace("Infinity", "inf"));
+    ByteBuffer src = ByteBuffer.wrap(encodeArray(encodeNumbers(texts)));
+    assertThat(parseReply(src, bufferSize, arrayReply(doubleArray()), Function.identity(), assertNoFailure(),
+        charsetDecoder), equalTo(nums));
+  }
+
+  @Theory
+  public void parsesDoublesFormattedByRedis(@TestedOn(ints = {1, 3, 100}) int bufferSize) {
+    String[] texts = {"0", "-0", "3.5", "0.1", "-1e-7", "1.5e+300", "123456789012345678", "4.9406564584124654e-324",
+        "inf", "-inf", "+inf"};
+    double[] expected = {0, -0.0, 3.5, 0.1, -1e-7, 1.5e300, 123456789012345678d, Double.MIN_VALUE,
+        Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY};
+    ByteBuffer src = ByteBuffer.wrap(encodeArray(encodeNumbers(Arrays.stream(texts))));
+    assertThat(parseReply(src, bufferSize, arrayReply(doubleArray()), Function.identity(), assertNoFailure(),
+        charsetDecoder), equalTo(expected));
+  }
+
+  @Theory
+  public void parsesNilElementsOfPrimitiveArrayReply(@TestedOn(ints = {1, 2, 3, 5, 100}) int bufferSize) {
+    byte[] reply = "*3\r\n$1\r\n1\r\n$-1\r\n$2\r\n-5\r\n".getBytes(US_ASCII);
+    assertThat(parseReply(ByteBuffer.wrap(reply), bufferSize, arrayReply(longArray()), Function.identity(),
+        assertNoFailure(), charsetDecoder), equalTo(new long[]{1, 0, -5}));
+    assertThat(parseReply(ByteBuffer.wrap(reply), bufferSize, arrayReply(doubleArray()), Function.identity(),
+        assertNoFailure(), charsetDecoder), equalTo(new double[]{1, Double.NaN, -5}));
+    assertThat(parseReply(ByteBuffer.wrap(reply), bufferSize, arrayReply(longSet()), Function.identity(),
+        assertNoFailure(), charsetDecoder).size(), equalTo(2));
+  }
+
+  @Theory
+  public void failsToParsePrimitiveArrayReplyOfNonNumbers(@TestedOn(ints = {1, 2, 3, 5, 100}) int bufferSize) {
+    ByteBuffer src = ByteBuffer.wrap(encodeArray(encodeNumbers(Stream.of("1", "2x", "3"))));
+    assertThat(parseReply(src, bufferSize, arrayReply(longArray()), assertNoResult(), e -> e, charsetDecoder),
+        allOf(instanceOf(IllegalStateException.class), hasMessage(equalTo("Unexpected character: x"))));
+  }
+
+  @Theory
+  public void parsesStreamingArrayReply(@ForAll(sampleSize = 40) byte[][] arrays,
+      @TestedOn(ints = {1, 3, 5, 10, 100, 1000}) int bufferSize) {
+    ByteBuffer src = ByteBuffer.wrap(encodeArray(arrays));
+    RecordingConsumer consumer = new RecordingConsumer(Integer.MAX_VALUE);
+    assertThat(parseReply(src, bufferSize, streamingArrayReply(consumer, new TestBulkStringBuilderFactory()),
+        Function.identity(), assertNoFailure(), charsetDecoder), equalTo(arrays.length));
+    assertThat(consumer.elements.toArray(), equalTo(arrays));
+    assertThat(consumer.events, equalTo(Collections.singletonList("completed")));
+  }
+
+  @Theory
+  public void parsesNullStreamingArrayReply(@TestedOn(ints = {1, 2, 3, 5, 100}) int bufferSize) {
+    ByteBuffer src = ByteBuffer.wrap(encodeNilArray());
+    RecordingConsumer consumer = new RecordingConsumer(Integer.MAX_VALUE);
+    assertThat(parseReply(src, bufferSize, streamingArrayReply(consumer, new TestBulkStringBuilderFactory()),
+        Function.identity(), assertNoFailure(), charsetDecoder), nullValue());
+    assertThat(consumer.elements, empty());
+    assertThat(consumer.events, equalTo(Collections.singletonList("completed")));
+  }
+
+  @Theory
+  public void parsesErrorStreamingArrayReply(@ForAll @From(Encoded.class) @Encoded.InCharset("US-ASCII") String s,
+      @TestedOn(ints = {1, 2, 3, 5, 100}) int bufferSize) {
+    RecordingConsumer consumer = new RecordingConsumer(Integer.MAX_VALUE);
+    parsesError(s, bufferSize, streamingArrayReply(consumer, new TestBulkStringBuilderFactory()));
+    assertThat(consumer.elements, empty());
+    assertThat(consumer.events, equalTo(Collections.singletonList("failed")));
+  }
+
+  @Theory
+  public void failsStreamingArrayReplyIfConsumerFails(@ForAll(sampleSize = 40) byte[][] arrays,
+      @TestedOn(ints = {1, 3, 5, 10, 100, 1000}) int bufferSize) {
+    assumeThat(arrays.length, greaterThan(1));
+    ByteBuffer src = ByteBuffer.wrap(encodeArray(arrays));
+    RecordingConsumer consumer = new RecordingConsumer(1);
+    assertThat(parseReply(src, bufferSize, streamingArrayReply(consumer, new TestBulkStringBuilderFactory()),
+        assertNoResult(), e -> e, charsetDecoder), instanceOf(IllegalStateException.class));
+    assertThat(consumer.elements.toArray(), equalTo(new byte[][]{arrays[0]}));
+    assertThat(consumer.events, equalTo(Collections.singletonList("failed")));
+  }
+
   @Theory
   public <E> void parsesNullArrayReply(@TestedOn(ints = {1, 2, 3, 5, 100}) int bufferSize) {
     ByteBuffer src = ByteBuffer.wrap(encodeNilArray());
@@ -356,6 +495,20 @@ public class RepliesTest {
     verifyZeroInteractions(charsetDecoder);
   }
 
+  @Theory
+  public void parsesPrimitiveScanReply(@ForAll(sampleSize = 10) @InRange(minLong = 0) long cursor,
+      @ForAll(sampleSize = 50) long[] elements, @TestedOn(ints = {3, 5, 10, 100, 1000}) int bufferSize) {
+    ByteBuffer src =
+        ByteBuffer.wrap(encodeScanReply(cursor, encodeNumbers(Arrays.stream(elements).mapToObj(Long::toString))));
+    ScanResult<LongSet> scanResult = parseReply(src, bufferSize, scanReply(longSet()), Function.identity(),
+        assertNoFailure(), charsetDecoder);
+    assertThat(scanResult.cursor, equalTo(cursor));
+    assertThat(scanResult.elements.size(), equalTo((int) Arrays.stream(elements).distinct().count()));
+    for (long element : elements) {
+      assertTrue(scanResult.elements.contains(element));
+    }
+  }
+
   @Theory
   public <E> void parsesErrorScanReply(@ForAll @From(Encoded.class) @Encoded.InCharset("US-ASCII") String s,
       @TestedOn(ints = {1, 2, 3, 5, 100}) int bufferSize) {
@@ -367,6 +520,61 @@ public class RepliesTest {
     verifyZeroInteractions(bulkStringBuilderFactory);
   }
 
+  @Theory
+  public void parsesRedirectError(@ForAll @InRange(minInt = 0, maxInt = 16383) int slot,
+      @ForAll @InRange(minInt = 1, maxInt = 65535) int port, @TestedOn(ints = {1, 2, 3, 5, 100}) int bufferSize) {
+    String error = "MOVED " + slot + " 127.0.0.1:" + port;
+    ByteBuffer src = ByteBuffer.wrap(encodeError(error));
+    Throwable e = parseReply(src, bufferSize, integerReply(), assertNoResult(), t -> t, charsetDecoder);
+    assertThat(e, instanceOf(ClusterRedirectException.class));
+    ClusterRedirectException redirect = (ClusterRedirectException) e;
+    assertThat(redirect.isAsk(), equalTo(false));
+    assertThat(redirect.getSlot(), equalTo(slot));
+    assertThat(redirect.getHost(), equalTo("127.0.0.1"));
+    assertThat(redirect.getPort(), equalTo(port));
+    assertThat(redirect.getMessage(), equalTo(error));
+  }
+
+  @Theory
+  public void parsesObjectReply(@TestedOn(ints = {1, 2, 3, 5, 100}) int bufferSize) {
+    ByteBuffer src = ByteBuffer.wrap(
+        "*3\r\n:0\r\n:5460\r\n*2\r\n$9\r\n127.0.0.1\r\n:7000\r\n".getBytes(US_ASCII));
+    assertThat(parseReply(src, bufferSize, objectReply(), Function.identity(), assertNoFailure(),
+        US_ASCII.newDecoder()), equalTo(Arrays.asList(0L, 5460L, Arrays.asList("127.0.0.1", 7000L))));
+  }
+
+  private static class RecordingConsumer implements ElementConsumer<byte[]> {
+    private final int maxElements;
+    final List<byte[]> elements = new ArrayList<>();
+    final List<String> events = new ArrayList<>();
+
+    RecordingConsumer(int maxElements) {
+      this.maxElements = maxElements;
+    }
+
+    @Override
+    public void element(byte[] element) {
+      if (elements.size() == maxElements) {
+        throw new IllegalStateException();
+      }
+      elements.add(element);
+    }
+
+    @Override
+    public void completed() {
+      events.add("completed");
+    }
+
+    @Override
+    public void failed(Throwable e) {
+      events.add("failed");
+    }
+  }
+
+  private static byte[][] encodeNumbers(Stream<String> nums) {
+    return nums.map(num -> num.getBytes(US_ASCII)).toArray(byte[][]::new);
+  }
+
   private void parsesError(String error, int bufferSize, ReplyParser<?> parser) {
     ByteBuffer src = ByteBuffer.wrap(encodeError(error));
     assertThat(parseReply(src, bufferSize, parser, assertNoResult(), e -> e, charsetDecoder),
@@ -0,0 +1,77 @@
+package redradishes.decoder.parser;
+
+import com.pholser.junit.quickcheck.ForAll;
+import com.pholser.junit.quickcheck.generator.InRange;
+import com.pholser.junit.quickcheck.generator.ValuesOf;
+import org.junit.Test;
+import org.junit.contrib.theories.Theories;
+import org.junit.contrib.theories.Theory;
+import org.junit.contrib.theories.suppliers.TestedOn;
+import org.junit.runner.RunWith;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+@RunWith(Theories.class)
+public class AsciiTest {
+  @Theory
+  public void parsesLongs(@ForAll long num, @TestedOn(ints = {0, 1, 3, 7}) int offset,
+      @ForAll @ValuesOf boolean littleEndian, @ForAll @ValuesOf boolean direct) {
+    byte[] digits = Long.toString(num).getBytes(US_ASCII);
+    ByteBuffer buffer = buffer(offset, digits, littleEndian, direct);
+    assertThat(Ascii.parseLong(buffer, offset, offset + digits.length), equalTo(num));
+  }
+
+  @Theory
+  public void appendsWholeWordsOfDigits(@ForAll @InRange(minLong = 0) long num,
+      @TestedOn(ints = {0, 1, 3, 7}) int offset, @ForAll @ValuesOf boolean littleEndian) {
+    byte[] digits = (num + "\r\n").getBytes(US_ASCII);
+    ByteBuffer buffer = buffer(offset, digits, littleEndian, false);
+    buffer.position(offset);
+    long parsed = Ascii.appendDigits(buffer, 0);
+    int words = (digits.length - 2) / 8;
+    assertThat(buffer.position(), equalTo(offset + words * 8));
+    while (buffer.get(buffer.position()) != '\r') {
+      parsed = parsed * 10 + (buffer.get() - '0');
+    }
+    assertThat(parsed, equalTo(num));
+  }
+
+  @Theory
+  public void findsCr(@ForAll byte[] bytes, @TestedOn(ints = {0, 1, 5, 8, 9, 20}) int crIndex,
+      @ForAll @ValuesOf boolean littleEndian) {
+    for (int i = 0; i < bytes.length; i++) {
+      if (bytes[i] == '\r') {
+        bytes[i] = '\n';
+      }
+    }
+    ByteBuffer buffer = buffer(0, bytes, littleEndian, false);
+    assertThat(Ascii.indexOfCr(buffer, 0, bytes.length), equalTo(-1));
+    if (crIndex < bytes.length) {
+      buffer.put(crIndex, (byte) '\r');
+      assertThat(Ascii.indexOfCr(buffer, 0, bytes.length), equalTo(crIndex));
+      assertThat(Ascii.indexOfCr(buffer, 0, crIndex), equalTo(-1));
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void rejectsNonDigits() {
+    byte[] bytes = "1234567890a".getBytes(US_ASCII);
+    Ascii.parseLong(ByteBuffer.wrap(bytes), 0, bytes.length);
+  }
+
+  private static ByteBuffer buffer(int offset, byte[] bytes, boolean littleEndian, boolean direct) {
+    int capacity = offset + bytes.length;
+    ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    buffer.order(littleEndian ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+    for (int i = 0; i < offset; i++) {
+      buffer.put((byte) '9');
+    }
+    buffer.put(bytes).clear();
+    return buffer;
+  }
+}
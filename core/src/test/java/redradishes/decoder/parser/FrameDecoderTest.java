@@ -0,0 +1,156 @@
+package redradishes.decoder.parser;
+
+import com.google.common.primitives.Bytes;
+import com.pholser.junit.quickcheck.ForAll;
+import org.junit.Test;
+import org.junit.contrib.theories.Theories;
+import org.junit.contrib.theories.Theory;
+import org.junit.contrib.theories.suppliers.TestedOn;
+import org.junit.runner.RunWith;
+import redradishes.decoder.ArrayBuilderFactory;
+import redradishes.decoder.Status;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static java.lang.Integer.min;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeThat;
+import static redradishes.decoder.ArrayBuilders.array;
+import static redradishes.decoder.BulkStringBuilders._long;
+import static redradishes.decoder.BulkStringBuilders.byteArray;
+import static redradishes.decoder.PrimitiveArrayBuilders.doubleArray;
+import static redradishes.decoder.PrimitiveArrayBuilders.longArray;
+import static redradishes.decoder.Replies.arrayReply;
+import static redradishes.decoder.Replies.bulkStringReply;
+import static redradishes.decoder.Replies.discardingReply;
+import static redradishes.decoder.Replies.integerReply;
+import static redradishes.decoder.Replies.longReply;
+import static redradishes.decoder.Replies.simpleStringReply;
+import static redradishes.decoder.Replies.statusReply;
+import static redradishes.decoder.parser.TestUtil.encodeArray;
+import static redradishes.decoder.parser.TestUtil.encodeArrayOfArrays;
+import static redradishes.decoder.parser.TestUtil.encodeBulkString;
+import static redradishes.decoder.parser.TestUtil.encodeError;
+import static redradishes.decoder.parser.TestUtil.encodeInteger;
+import static redradishes.decoder.parser.TestUtil.encodeNilArray;
+import static redradishes.decoder.parser.TestUtil.encodeNilBulkString;
+import static redradishes.decoder.parser.TestUtil.encodeSimpleString;
+import static redradishes.decoder.parser.TestUtil.parseReply;
+
+@RunWith(Theories.class)
+public class FrameDecoderTest {
+  private static final List<ReplyParser<?>> PARSERS =
+      Arrays.asList(integerReply(), longReply(), simpleStringReply(), statusReply(), bulkStringReply(byteArray()),
+          bulkStringReply(_long()), arrayReply(array(byte[][]::new), byteArray()),
+          arrayReply(array(Long[]::new), _long()), arrayReply(longArray()), arrayReply(doubleArray()),
+          discardingReply());
+  private final CharsetDecoder charsetDecoder = UTF_8.newDecoder();
+
+  @Test
+  public void supportsParsersOfSimpleReplies() {
+    for (ReplyParser<?> parser : PARSERS) {
+      assertTrue(FrameDecoder.supports(parser));
+    }
+    assertFalse(FrameDecoder.supports(integerReply().map(i -> i)));
+  }
+
+  @Theory
+  public void returnsSharedCommonStatuses(@TestedOn(ints = {1, 2, 100}) int bufferSize) {
+    FrameDecoder frameDecoder = new FrameDecoder(charsetDecoder);
+    ByteBuffer src = ByteBuffer.wrap(Bytes.concat(encodeSimpleString("OK"), encodeSimpleString("QUEUED")));
+    assertThat(decode(frameDecoder, src, bufferSize, simpleStringReply()), sameInstance("OK"));
+    assertThat(decode(frameDecoder, src, bufferSize, statusReply()), sameInstance(Status.QUEUED));
+  }
+
+  @Theory
+  public void discardsRestOfReply(@ForAll(sampleSize = 10) byte[][] elements,
+      @TestedOn(ints = {1, 2, 3, 5}) int bufferSize) {
+    assumeThat(elements.length, greaterThan(0));
+    AtomicInteger built = new AtomicInteger();
+    ArrayBuilderFactory<byte[], byte[][]> arrayFactory = array(byte[][]::new);
+    ReplyParser<byte[][]> parser = arrayReply(length -> {
+      ArrayBuilderFactory.Builder<byte[], byte[][]> builder = arrayFactory.create(length);
+      return new ArrayBuilderFactory.Builder<byte[], byte[][]>() {
+        @Override
+        public void add(byte[] element) {
+          builder.add(element);
+        }
+
+        @Override
+        public byte[][] build() {
+          built.incrementAndGet();
+          return builder.build();
+        }
+      };
+    }, byteArray());
+    ByteBuffer src = ByteBuffer.wrap(Bytes.concat(encodeArray(elements),
+        encodeArrayOfArrays(new byte[][][]{elements, elements}), encodeInteger(1)));
+    FrameDecoder frameDecoder = new FrameDecoder(charsetDecoder);
+    for (int reply = 0; reply < 2; reply++) {
+      ByteBuffer chunk = src.slice();
+      chunk.limit(min(bufferSize, chunk.remaining()));
+      assertFalse(frameDecoder.parse(chunk, parser));
+      src.position(src.position() + chunk.position());
+      frameDecoder.discardRest();
+      assertThat(decode(frameDecoder, src, bufferSize, discardingReply()), nullValue());
+    }
+    assertThat(built.get(), equalTo(0));
+    assertThat(decode(frameDecoder, src, bufferSize, integerReply()), equalTo(1));
+  }
+
+  @Theory
+  public void decodesLikeContinuationParsers(@ForAll(sampleSize = 20) byte[][] elements,
+      @ForAll(sampleSize = 5) long num, @TestedOn(ints = {1, 2, 3, 5, 10, 100, 10000}) int bufferSize) {
+    List<byte[]> replies = Arrays.asList(encodeInteger(num), encodeSimpleString("OK"), encodeError("ERR wrong"),
+        encodeSimpleString("string"),
+        encodeError("MOVED 3999 127.0.0.1:6381"), encodeNilBulkString(), encodeNilArray(),
+        encodeBulkString(Long.toString(num).getBytes(UTF_8)), encodeArray(elements),
+        encodeArray(new byte[][]{"1".getBytes(UTF_8), elements.length > 0 ? elements[0] : new byte[0]}),
+        encodeArrayOfArrays(new byte[][][]{elements, {}}),
+        Bytes.concat("*3\r\n".getBytes(UTF_8), encodeError("ERR first"), encodeInteger(num), encodeError("ERR last")));
+    for (ReplyParser<?> parser : PARSERS) {
+      FrameDecoder frameDecoder = new FrameDecoder(charsetDecoder);
+      ByteBuffer src = ByteBuffer.wrap(Bytes.concat(replies.toArray(new byte[replies.size()][])));
+      for (byte[] reply : replies) {
+        Object expected =
+            parseReply(ByteBuffer.wrap(reply), bufferSize, parser, Function.identity(), e -> e, charsetDecoder);
+        assertThat(describe(decode(frameDecoder, src, bufferSize, parser)), equalTo(describe(expected)));
+      }
+      assertFalse(src.hasRemaining());
+    }
+  }
+
+  private static Object decode(FrameDecoder frameDecoder, ByteBuffer src, int bufferSize, ReplyParser<?> parser) {
+    boolean done;
+    do {
+      ByteBuffer chunk = src.slice();
+      chunk.limit(min(bufferSize, chunk.remaining()));
+      done = frameDecoder.parse(chunk, parser);
+      src.position(src.position() + chunk.position());
+    } while (!done);
+    Throwable failure = frameDecoder.failure();
+    return failure != null ? failure : frameDecoder.value();
+  }
+
+  private static Object describe(Object value) {
+    if (value instanceof Throwable) {
+      return value.getClass().getName() + ": " + ((Throwable) value).getMessage();
+    } else if (value instanceof CharSequence) {
+      return value.toString();
+    } else {
+      return value;
+    }
+  }
+}
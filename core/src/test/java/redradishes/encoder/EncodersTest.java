@@ -2,19 +2,26 @@ package redradishes.encoder;
 
 import com.google.common.primitives.Bytes;
 import com.pholser.junit.quickcheck.ForAll;
+import com.pholser.junit.quickcheck.generator.ValuesOf;
 import org.junit.contrib.theories.Theories;
 import org.junit.contrib.theories.Theory;
 import org.junit.runner.RunWith;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static redradishes.encoder.Encoders.collArg;
 import static redradishes.encoder.Encoders.intArg;
+import static redradishes.encoder.Encoders.keyArg;
+import static redradishes.encoder.Encoders.mapArg;
+import static redradishes.encoder.TestUtil.keys;
 import static redradishes.encoder.TestUtil.serialize;
 
 @RunWith(Theories.class)
@@ -37,6 +44,16 @@ public class EncodersTest {
             .toArray(byte[][]::new))));
   }
 
+  @Theory
+  public void testMapArgKeys(@ForAll Map<String, Integer> val, @ForAll @ValuesOf boolean compact) {
+    ConstExpr expr = mapArg(keyArg(UTF_8), intArg()).encode(val);
+    ConstExpr c = intArg().encode(0).append(compact ? expr.compact() : expr).compact();
+    Object[] expectedKeys = val.keySet().stream().map(k -> k.getBytes(UTF_8)).toArray();
+    assertEquals(1 + val.size() * 2, c.size());
+    assertArrayEquals(expectedKeys, keys(c).toArray());
+    assertArrayEquals(expectedKeys, keys(ConstExpr.EMPTY.append(c).compact()).toArray());
+  }
+
   @Theory
   public void testCollArg(@ForAll List<Integer> val) {
     ConstExpr c = collArg(intArg()).encode(val);
@@ -8,18 +8,27 @@ import com.pholser.junit.quickcheck.generator.java.lang.Encoded.InCharset;
 import org.junit.contrib.theories.DataPoints;
 import org.junit.contrib.theories.Theories;
 import org.junit.contrib.theories.Theory;
+import org.junit.contrib.theories.suppliers.TestedOn;
 import org.junit.runner.RunWith;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 
 import static java.nio.charset.StandardCharsets.ISO_8859_1;
 import static java.nio.charset.StandardCharsets.US_ASCII;
 import static java.nio.charset.StandardCharsets.UTF_16BE;
 import static java.nio.charset.StandardCharsets.UTF_16LE;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static redradishes.encoder.TestUtil.keys;
 import static redradishes.encoder.TestUtil.respBulkString;
 import static redradishes.encoder.TestUtil.serialize;
 
@@ -65,6 +74,67 @@ public class RespEncodersTest {
     assertThat(serialize(c), equalTo(respBulkString(bytes)));
   }
 
+  @Theory
+  public void testBufferBulkString(@ForAll byte[] bytes, @ForAll @ValuesOf boolean direct,
+      @ForAll @ValuesOf boolean compact) {
+    ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(bytes.length + 2) : ByteBuffer.allocate(bytes.length + 2);
+    buffer.put((byte) 0).put(bytes).put((byte) 0).flip();
+    buffer.position(1).limit(bytes.length + 1);
+    ConstExpr expr = RespEncoders.bufferBulkString().encode(buffer);
+    ConstExpr c = compact ? expr.compact() : expr;
+    assertEquals(1, c.size());
+    assertThat(serialize(c), equalTo(respBulkString(bytes)));
+    assertEquals(1, buffer.position());
+  }
+
+  @Theory
+  public void testFileBulkString(@ForAll byte[] bytes, @ForAll @ValuesOf boolean compact) throws IOException {
+    Path file = Files.createTempFile("region", null);
+    try {
+      Files.write(file, bytes);
+      ConstExpr expr = RespEncoders.fileBulkString().encode(FileRegion.of(file));
+      ConstExpr c = compact ? expr.compact() : expr;
+      assertEquals(1, c.size());
+      assertThat(serialize(c), equalTo(respBulkString(bytes)));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Theory
+  public void testCompactSharesOnlyLargeBytes(@TestedOn(ints = {100, 8191, 8192, 100000}) int length) {
+    byte[] bytes = new byte[length];
+    ConstExpr name = RespEncoders.strBulkString(US_ASCII).encode("SET");
+    ConstExpr c = name.append(RespEncoders.bytesBulkString().encode(bytes)).compact();
+    byte[] serialized = serialize(c);
+    Arrays.fill(bytes, (byte) 1);
+    if (length >= ByteSink.MIN_SHARED_LENGTH) {
+      assertThat(serialize(c), not(equalTo(serialized)));
+    } else {
+      assertThat(serialize(c), equalTo(serialized));
+    }
+    assertEquals(2, c.size());
+  }
+
+  @Theory
+  public void testStrKeyBulkString(@ForAll String s, Charset charset, @ForAll @ValuesOf boolean compact) {
+    ConstExpr expr = RespEncoders.strKeyBulkString(charset).encode(s);
+    ConstExpr c = compact ? expr.compact() : expr;
+    assertEquals(1, c.size());
+    byte[] bytes = s.getBytes(charset);
+    assertThat(serialize(c), equalTo(respBulkString(bytes)));
+    assertThat(keys(c), contains(bytes));
+  }
+
+  @Theory
+  public void testBytesKeyBulkString(@ForAll byte[] bytes, @ForAll @ValuesOf boolean compact) {
+    ConstExpr expr = RespEncoders.bytesKeyBulkString().encode(bytes);
+    ConstExpr c = compact ? expr.compact() : expr;
+    assertEquals(1, c.size());
+    assertThat(serialize(c), equalTo(respBulkString(bytes)));
+    assertThat(keys(c), contains(bytes));
+  }
+
   @Theory
   public void testIntBulkString(int i, @ForAll @ValuesOf boolean compact) {
     ConstExpr expr = RespEncoders.intBulkString().encode(i);
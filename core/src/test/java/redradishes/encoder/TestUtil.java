@@ -3,6 +3,10 @@ package redradishes.encoder;
 import com.google.common.io.ByteArrayDataOutput;
 import com.google.common.io.ByteStreams;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import static java.nio.charset.StandardCharsets.US_ASCII;
 
 class TestUtil {
@@ -12,6 +16,12 @@ class TestUtil {
     return byteArraySink.geBytes();
   }
 
+  static List<byte[]> keys(ConstExpr c) {
+    List<byte[]> keys = new ArrayList<>();
+    c.keys((src, offset, length) -> keys.add(Arrays.copyOfRange(src, offset, offset + length)));
+    return keys;
+  }
+
   static byte[] respBulkString(byte[] val) {
     ByteArrayDataOutput byteArrayOutputStream = ByteStreams.newDataOutput();
     byteArrayOutputStream.write('$');
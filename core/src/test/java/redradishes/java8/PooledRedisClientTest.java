@@ -0,0 +1,79 @@
+package redradishes.java8;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.xnio.OptionMap;
+import redradishes.RedisClientOptions;
+import redradishes.commands.Command;
+import redradishes.commands.Command1;
+import redradishes.commands.Command2;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static redradishes.commands.CommandBuilder.command;
+import static redradishes.decoder.ArrayBuilders.collection;
+import static redradishes.decoder.BulkStringBuilders.integer;
+import static redradishes.decoder.Replies.arrayReply;
+import static redradishes.decoder.Replies.integerReply;
+import static redradishes.decoder.Replies.simpleStringReply;
+import static redradishes.encoder.Encoders.intArg;
+import static redradishes.encoder.Encoders.strArg;
+
+public class PooledRedisClientTest {
+  private static final Command<CharSequence> FLUSHDB = command("FLUSHDB").returning(simpleStringReply());
+  private static final Command1<CharSequence, Integer> INCR =
+      command("INCR").withArg(strArg(UTF_8)).returning(integerReply());
+  private static final Command2<CharSequence, Integer, Integer> RPUSH =
+      command("RPUSH").withArg(strArg(UTF_8)).withArg(intArg()).returning(integerReply());
+  private static final Command1<CharSequence, List<Integer>> LRANGE_ALL =
+      command("LRANGE").withArg(strArg(UTF_8)).withOption("0").withOption("-1")
+          .returning(arrayReply(collection(ArrayList::new), integer()));
+
+  private RedisClientFactory factory;
+  private RedisClient redisClient;
+
+  @Before
+  public void openConnection() throws Exception {
+    factory = new RedisClientFactory(UTF_8, 4);
+    redisClient = factory.connect(new InetSocketAddress("localhost", 6379),
+        OptionMap.create(RedisClientOptions.CONNECTIONS, 4));
+    redisClient.send(FLUSHDB).join();
+  }
+
+  @After
+  public void closeConnection() throws Exception {
+    redisClient.close();
+    factory.close();
+  }
+
+  @Test
+  public void completesAllCommands() {
+    String key = "COUNTER";
+    List<CompletableFuture<Integer>> futures =
+        IntStream.range(0, 1000).mapToObj(i -> redisClient.send(INCR, key)).collect(Collectors.toList());
+    futures.forEach(CompletableFuture::join);
+    assertThat(redisClient.send(INCR, key).join(), equalTo(1001));
+  }
+
+  @Test
+  public void preservesOrderWithinAffinityKey() {
+    String key = "LIST";
+    List<CompletableFuture<Integer>> futures = IntStream.range(0, 100)
+        .mapToObj(i -> redisClient.sendWithAffinity(key, RPUSH.apply(key, i))).collect(Collectors.toList());
+    for (int i = 0; i < futures.size(); i++) {
+      assertThat(futures.get(i).join(), equalTo(i + 1));
+    }
+    assertThat(redisClient.send(LRANGE_ALL, key).join(),
+        contains(IntStream.range(0, 100).boxed().toArray(Integer[]::new)));
+  }
+}
@@ -1,42 +1,70 @@
 package redradishes.java8;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Uninterruptibles;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.xnio.OptionMap;
+import redradishes.BackpressurePolicy;
 import redradishes.CommandList;
+import redradishes.RedisClientOptions;
 import redradishes.RedisException;
+import redradishes.ReplyCallback;
 import redradishes.Request;
+import redradishes.TooManyPendingCommandsException;
 import redradishes.commands.Command;
 import redradishes.commands.Command1;
 import redradishes.commands.Command2;
 import redradishes.commands.Command3;
+import redradishes.decoder.ArrayBuilderFactory;
+import redradishes.decoder.parser.ReplyParser;
+import redradishes.encoder.ByteSink;
+import redradishes.encoder.FileRegion;
 
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.emptyArray;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasEntry;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 import static redradishes.commands.CommandBuilder.command;
 import static redradishes.decoder.ArrayBuilders.array;
 import static redradishes.decoder.ArrayBuilders.collection;
@@ -53,8 +81,10 @@ import static redradishes.decoder.Replies.longReply;
 import static redradishes.decoder.Replies.mapReply;
 import static redradishes.decoder.Replies.simpleStringReply;
 import static redradishes.encoder.Encoders.arrayArg;
+import static redradishes.encoder.Encoders.byteBufferArg;
 import static redradishes.encoder.Encoders.bytesArg;
 import static redradishes.encoder.Encoders.collArg;
+import static redradishes.encoder.Encoders.fileArg;
 import static redradishes.encoder.Encoders.intArg;
 import static redradishes.encoder.Encoders.intArrayArg;
 import static redradishes.encoder.Encoders.longArg;
@@ -70,6 +100,10 @@ public class RedisClientTest {
       command("DEL").withArg(arrayArg(strArg(UTF_8))).returning(integerReply());
   private static final Command<CharSequence> PING = command("PING").returning(simpleStringReply());
   private static final Command<CharSequence> FLUSHDB = command("FLUSHDB").returning(simpleStringReply());
+  private static final Command<CharSequence> DEBUG_SLEEP =
+      command("DEBUG").withOption("SLEEP").withOption("0.2").returning(simpleStringReply());
+  private static final Command<CharSequence> CLIENT_REPLY_ON =
+      command("CLIENT").withOption("REPLY").withOption("ON").returning(simpleStringReply());
   private static final Command<CharSequence> QUIT = command("QUIT").returning(simpleStringReply());
   private static final Command1<CharSequence, CharSequence> ECHO =
       command("ECHO").withArg(strArg(UTF_8)).returning(bulkStringReply(charSequence()));
@@ -191,6 +225,149 @@ public class RedisClientTest {
     }
   }
 
+  @Test
+  public void timesOutAndDiscardsLateReply() throws Exception {
+    CompletableFuture<CharSequence> future = redisClient.send(DEBUG_SLEEP, 20, TimeUnit.MILLISECONDS);
+    CompletableFuture<CharSequence> next = redisClient.send(PING);
+    try {
+      future.join();
+      fail();
+    } catch (CompletionException e) {
+      assertThat(e.getCause(), instanceOf(TimeoutException.class));
+    }
+    assertThat(next.join(), hasSameContentAs("PONG"));
+  }
+
+  @Test
+  public void skipsReplyOfCancelledCommand() throws Exception {
+    String key = "KEY_1";
+    AtomicInteger builders = new AtomicInteger();
+    ArrayBuilderFactory<Long, List<Long>> listFactory = collection(ArrayList::new);
+    Command1<CharSequence, List<Long>> smembers =
+        command("SMEMBERS").withArg(strArg(UTF_8)).returning(arrayReply(length -> {
+          builders.incrementAndGet();
+          return listFactory.create(length);
+        }, _long()));
+    assertThat(redisClient.send(SADD_LONG_ARR, key, new long[]{1, 2, 3}).join(), equalTo(3));
+
+    CompletableFuture<CharSequence> sleep = redisClient.send(DEBUG_SLEEP);
+    CompletableFuture<List<Long>> future = redisClient.send(smembers, key);
+    future.cancel(false);
+    CompletableFuture<CharSequence> next = redisClient.send(ECHO, "NEXT");
+    assertThat(sleep.join(), hasSameContentAs("OK"));
+    assertThat(next.join(), hasSameContentAs("NEXT"));
+    assertTrue(future.isCancelled());
+    assertThat(builders.get(), equalTo(0));
+  }
+
+  @Test
+  public void repliesToCallback() throws Exception {
+    String key = "KEY_1";
+    CountDownLatch replies = new CountDownLatch(100);
+    List<Long> values = Collections.synchronizedList(new ArrayList<>());
+    List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+    ReplyCallback<Object> callback = new ReplyCallback<Object>() {
+      @Override
+      public void completed(Object value) {
+        values.add((Long) value);
+        replies.countDown();
+      }
+
+      @Override
+      public void failed(Throwable exception) {
+        errors.add(exception);
+        replies.countDown();
+      }
+    };
+    for (int i = 0; i < 99; i++) {
+      redisClient.send(HINCRBY, key, "FIELD", 1L, callback);
+    }
+    redisClient.send(GET, key, callback);
+    assertTrue(replies.await(10, TimeUnit.SECONDS));
+    assertThat(values, contains(LongStream.rangeClosed(1, 99).boxed().toArray(Long[]::new)));
+    assertThat(errors, contains(instanceOf(RedisException.class)));
+  }
+
+  @Test
+  public void countsFailedCallbacks() throws Exception {
+    redisClient.send(PING, new ReplyCallback<CharSequence>() {
+      @Override
+      public void completed(CharSequence value) {
+        throw new IllegalStateException();
+      }
+
+      @Override
+      public void failed(Throwable exception) {
+      }
+    });
+    assertThat(redisClient.send(PING).join(), hasSameContentAs("PONG"));
+    assertThat(redisClient.stats().failedCallbacks(), equalTo(1L));
+  }
+
+  @Test
+  public void failsRejectedCallbackOnce() throws Exception {
+    try (RedisClient client = factory.connect(new InetSocketAddress("localhost", 6379),
+        OptionMap.builder().set(RedisClientOptions.MAX_PENDING_COMMANDS, 1)
+            .set(RedisClientOptions.BACKPRESSURE, BackpressurePolicy.FAIL)
+            .set(RedisClientOptions.COMMAND_TIMEOUT, 20).getMap())) {
+      CompletableFuture<CharSequence> sleep = client.send(DEBUG_SLEEP, 1, TimeUnit.SECONDS);
+      List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+      client.send(PING, new ReplyCallback<CharSequence>() {
+        @Override
+        public void completed(CharSequence value) {
+          fail();
+        }
+
+        @Override
+        public void failed(Throwable exception) {
+          failures.add(exception);
+        }
+      });
+      CompletableFuture<CharSequence> rejected = client.send(PING);
+      assertThat(sleep.join(), hasSameContentAs("OK"));
+      assertThat(failures, contains(instanceOf(TooManyPendingCommandsException.class)));
+      assertTrue(rejected.isCompletedExceptionally());
+      assertThat(client.stats().rejectedCommands(), equalTo(2L));
+    }
+  }
+
+  @Test
+  public void sendsAndForgets() throws Exception {
+    String key = "KEY_1";
+    for (int i = 0; i < 100; i++) {
+      redisClient.sendAndForget(HINCRBY, key, "FIELD", 1L);
+    }
+    redisClient.sendAndForget(GET, key);
+    assertThat(redisClient.send(HGET_LONG, key, "FIELD").join(), equalTo(100L));
+    assertThat(redisClient.stats().failedForgottenCommands(), equalTo(1L));
+  }
+
+  @Test
+  public void skipsForgottenReplies() throws Exception {
+    CompletableFuture<CharSequence> clientReply = redisClient.send(CLIENT_REPLY_ON);
+    assumeTrue("CLIENT REPLY is supported", clientReply.handle((reply, e) -> e == null).join());
+    String key = "KEY_1";
+    try (RedisClient client = factory.connect(new InetSocketAddress("localhost", 6379),
+        OptionMap.create(RedisClientOptions.SKIP_FORGOTTEN_REPLIES, true))) {
+      for (int i = 0; i < 100; i++) {
+        client.sendAndForget(HINCRBY, key, "FIELD", 1L);
+      }
+      assertThat(client.send(HGET_LONG, key, "FIELD").join(), equalTo(100L));
+      assertThat(client.stats().pendingCommands(), equalTo(0));
+    }
+  }
+
+  @Test
+  public void measuresInlineCompletions() throws Exception {
+    CompletableFuture<CharSequence> sleep = redisClient.send(DEBUG_SLEEP);
+    CompletableFuture<Void> callback = sleep.thenRun(() -> Uninterruptibles.sleepUninterruptibly(50, MILLISECONDS));
+    callback.join();
+    // The reply to the next command is completed after the time of the slow callback is recorded
+    assertThat(redisClient.send(PING).join(), hasSameContentAs("PONG"));
+    assertThat(redisClient.stats().inlineCompletions(), greaterThan(0L));
+    assertThat(redisClient.stats().maxInlineCompletionNanos(), greaterThan(TimeUnit.MILLISECONDS.toNanos(40)));
+  }
+
   @Test
   @SuppressWarnings({"unchecked", "varargs"})
   public void canSendListOfCommands() throws Exception {
@@ -198,6 +375,67 @@ public class RedisClientTest {
         contains(hasSameContentAs("PONG"), hasSameContentAs("PONG"), hasSameContentAs("PONG")));
   }
 
+  @Test
+  public void flushesPipeline() throws Exception {
+    RedisClient.Pipeline pipeline = redisClient.pipeline();
+    List<CompletableFuture<CharSequence>> sets = IntStream.range(0, 10000)
+        .mapToObj(i -> pipeline.send(SET_LONG.apply("KEY_" + i, (long) i))).collect(Collectors.toList());
+    pipeline.sendIgnoringReply(SET.apply("KEY", "VAL"));
+    CompletableFuture<byte[]> get = pipeline.send(GET.apply("KEY_9999"));
+    assertThat(pipeline.size(), equalTo(10002));
+    pipeline.flush().join();
+    sets.forEach(future -> assertThat(future.join(), hasSameContentAs("OK")));
+    assertArrayEquals("9999".getBytes(UTF_8), get.join());
+    assertThat(redisClient.send(GET, "KEY").join(), equalTo("VAL".getBytes(UTF_8)));
+    assertThat(pipeline.size(), equalTo(0));
+  }
+
+  @Test
+  public void pipelineFailsWithIgnoredError() throws Exception {
+    String key = "KEY_1";
+    RedisClient.Pipeline pipeline = redisClient.pipeline();
+    pipeline.send(HSET.apply(key, "FIELD", "VAL"));
+    pipeline.sendIgnoringReply(GET.apply(key));
+    CompletableFuture<CharSequence> ping = pipeline.send(PING);
+    try {
+      pipeline.flush().join();
+      fail();
+    } catch (CompletionException e) {
+      assertThat(e.getCause(), instanceOf(RedisException.class));
+    }
+    assertThat(ping.join(), hasSameContentAs("PONG"));
+  }
+
+  @Test
+  public void pipelineFailsWithIgnoredRequestWhichCannotBeEncoded() throws Exception {
+    IllegalArgumentException encodingFailure = new IllegalArgumentException();
+    Request<CharSequence> unencodable = new Request<CharSequence>() {
+      @Override
+      public void writeTo(ByteSink sink) {
+        throw encodingFailure;
+      }
+
+      @Override
+      public ReplyParser<? extends CharSequence> parser() {
+        return simpleStringReply();
+      }
+    };
+    try (RedisClient client = factory.connect(new InetSocketAddress("localhost", 6379),
+        OptionMap.create(RedisClientOptions.CALLER_ENCODING, true))) {
+      RedisClient.Pipeline pipeline = client.pipeline();
+      pipeline.sendIgnoringReply(unencodable);
+      CompletableFuture<CharSequence> ping = pipeline.send(PING);
+      assertThat(pipeline.size(), equalTo(1));
+      try {
+        pipeline.flush().join();
+        fail();
+      } catch (CompletionException e) {
+        assertThat(e.getCause(), sameInstance(encodingFailure));
+      }
+      assertThat(ping.join(), hasSameContentAs("PONG"));
+    }
+  }
+
   @Test
   @SuppressWarnings({"unchecked", "varargs"})
   public void serverClosesConnection() throws Exception {
@@ -284,6 +522,40 @@ public class RedisClientTest {
     assertArrayEquals(redisClient.send(GET, key).join(), val2);
   }
 
+  @Test
+  public void getSetLargeBuffer() throws Exception {
+    String key = "KEY_1";
+    byte[] val = new byte[1 << 20];
+    new Random(0).nextBytes(val);
+    ByteBuffer buffer = ByteBuffer.allocateDirect(val.length);
+    buffer.put(val).flip();
+    Command2<CharSequence, ByteBuffer, CharSequence> set =
+        command("SET").withArg(strArg(UTF_8)).withArg(byteBufferArg()).returning(simpleStringReply());
+    assertThat(redisClient.send(set, key, buffer).join(), hasSameContentAs("OK"));
+    assertArrayEquals(redisClient.send(GET, key).join(), val);
+  }
+
+  @Test
+  public void getSetFile() throws Exception {
+    String key = "KEY_1";
+    byte[] val = new byte[1 << 20];
+    new Random(0).nextBytes(val);
+    Path file = Files.createTempFile("value", null);
+    try {
+      Files.write(file, val);
+      Command2<CharSequence, FileRegion, CharSequence> set =
+          command("SET").withArg(strArg(UTF_8)).withArg(fileArg()).returning(simpleStringReply());
+      assertThat(redisClient.send(set, key, FileRegion.of(file)).join(), hasSameContentAs("OK"));
+      assertArrayEquals(redisClient.send(GET, key).join(), val);
+      try (FileChannel channel = FileChannel.open(file)) {
+        assertThat(redisClient.send(set, key, FileRegion.of(channel, 100, 1000)).join(), hasSameContentAs("OK"));
+      }
+      assertArrayEquals(redisClient.send(GET, key).join(), Arrays.copyOfRange(val, 100, 1100));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
   @Test
   public void getSetExBytes() throws Exception {
     String key = "KEY_1";